@@ -18,4 +18,25 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Gson binds the catalog models reflectively, by the names in @SerializedName. Keep those fields,
+# the no-argument constructors Gson instantiates through and the generic signature of
+# CardRow.mCards, so the cards are bound as Card rather than as maps.
+-keepattributes Signature, *Annotation*
+-keepclassmembers class cs.nzm.atvexo.models.** {
+    @com.google.gson.annotations.SerializedName <fields>;
+    <init>();
+}
+# Enums are read and written by constant name, and the snapshot stores their ordinals.
+-keepclassmembers enum cs.nzm.atvexo.models.Card$Type {
+    <fields>;
+    public static **[] values();
+    public static ** valueOf(java.lang.String);
+}
+-keepclassmembers class * implements android.os.Parcelable {
+    public static final ** CREATOR;
+}
+
+# Keep line numbers, so crashes in release builds can be traced with the mapping file.
+-keepattributes SourceFile,LineNumberTable
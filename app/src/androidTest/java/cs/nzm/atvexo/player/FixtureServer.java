@@ -0,0 +1,164 @@
+package cs.nzm.atvexo.player;
+
+import android.content.res.AssetManager;
+import android.net.Uri;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for an HLS origin, serving the assets under a directory of the test APK
+ * over HTTP, like <code>tools/hls_server.py</code> does from the host. Records the path of every
+ * request, and can hold back the responses to paths with a given prefix.
+ */
+final class FixtureServer {
+
+    private final AssetManager mAssets;
+    private final String mRoot;
+    private final ServerSocket mServerSocket;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private final List<String> mRequests = new CopyOnWriteArrayList<>();
+    private volatile String mDelayedPrefix;
+    private volatile long mDelayMs;
+
+    FixtureServer(AssetManager assets, String root) throws IOException {
+        mAssets = assets;
+        mRoot = root;
+        mServerSocket = new ServerSocket(0);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        });
+    }
+
+    /**
+     * Returns the URI of the fixture at the given path, relative to the served directory.
+     */
+    Uri getUri(String path) {
+        return Uri.parse("http://localhost:" + mServerSocket.getLocalPort() + "/" + path);
+    }
+
+    /**
+     * Holds back the responses to the paths starting with the given prefix.
+     */
+    void setDelay(String pathPrefix, long delayMs) {
+        mDelayedPrefix = pathPrefix;
+        mDelayMs = delayMs;
+    }
+
+    boolean wasRequested(String path) {
+        return mRequests.contains(path);
+    }
+
+    int getRequestCount(String path) {
+        int count = 0;
+        for (String request : mRequests) {
+            if (request.equals(path)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the bytes of the fixture at the given path.
+     */
+    byte[] read(String path) throws IOException {
+        try (InputStream input = mAssets.open(mRoot + "/" + path)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    void close() throws IOException {
+        mServerSocket.close();
+        mExecutor.shutdownNow();
+    }
+
+    private void acceptConnections() {
+        while (!mServerSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) {
+                // Closed.
+                return;
+            }
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        serve(socket);
+                    } catch (IOException | InterruptedException e) {
+                        // The client went away, or the server was closed.
+                    } finally {
+                        try {
+                            socket.close();
+                        } catch (IOException e) {
+                            // Already closed.
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private void serve(Socket socket) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        String requestLine = reader.readLine();
+        if (requestLine == null) {
+            return;
+        }
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            // Request headers are not needed.
+        }
+        String[] parts = requestLine.split(" ");
+        String path = parts.length > 1 ? parts[1] : "/";
+        int queryStart = path.indexOf('?');
+        path = (queryStart >= 0 ? path.substring(0, queryStart) : path).substring(1);
+        mRequests.add(path);
+
+        String delayedPrefix = mDelayedPrefix;
+        if (delayedPrefix != null && path.startsWith(delayedPrefix)) {
+            Thread.sleep(mDelayMs);
+        }
+        OutputStream output = socket.getOutputStream();
+        byte[] body;
+        try {
+            body = read(path);
+        } catch (FileNotFoundException e) {
+            output.write(("HTTP/1.0 404 Not Found\r\nContent-Length: 0\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            return;
+        }
+        String contentType = path.endsWith(".m3u8")
+                ? "application/vnd.apple.mpegurl" : "video/mp2t";
+        output.write(("HTTP/1.0 200 OK\r\nContent-Type: " + contentType + "\r\n"
+                + "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        output.write(body);
+        output.flush();
+    }
+}
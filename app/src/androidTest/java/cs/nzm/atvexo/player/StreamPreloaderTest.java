@@ -0,0 +1,320 @@
+package cs.nzm.atvexo.player;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the {@link StreamPreloader} against the HLS fixtures of <code>assets/hls</code>, served by
+ * a {@link FixtureServer}: variant selection, the byte budget, cancellation when focus moves on,
+ * and the hand-off of the preloaded bytes to a {@link PreloadDataSource}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StreamPreloaderTest {
+
+    private static final String MASTER = "master.m3u8";
+    private static final long LOW_BANDWIDTH = 1_000_000;
+    private static final long HIGH_BANDWIDTH = 10_000_000;
+    private static final long BUDGET_BYTES = 1024 * 1024;
+    private static final long TIMEOUT_MS = 5_000;
+
+    private FixtureServer mServer;
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new FixtureServer(
+                InstrumentationRegistry.getInstrumentation().getContext().getAssets(), "hls");
+        mExecutor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mExecutor.shutdownNow();
+        mServer.close();
+    }
+
+    private StreamPreloader createPreloader(PreloadStore store, long bitrateEstimate) {
+        return new StreamPreloader(store, new DefaultHttpDataSource.Factory(),
+                new FixedBandwidthMeter(bitrateEstimate), mExecutor);
+    }
+
+    @Test
+    public void preloadsFirstSegmentsOfVariantThatFitsBandwidth() throws IOException {
+        PreloadStore store = new PreloadStore(BUDGET_BYTES);
+        createPreloader(store, LOW_BANDWIDTH).preloadHls(mServer.getUri(MASTER));
+
+        assertTrue(store.contains(mServer.getUri(MASTER)));
+        assertTrue(store.contains(mServer.getUri("low/index.m3u8")));
+        assertTrue(store.contains(mServer.getUri("low/segment0.ts")));
+        assertTrue(store.contains(mServer.getUri("low/segment1.ts")));
+        assertFalse(mServer.wasRequested("low/segment2.ts"));
+        assertFalse(mServer.wasRequested("high/index.m3u8"));
+        assertFalse(mServer.wasRequested("iframe/index.m3u8"));
+    }
+
+    @Test
+    public void preloadsHigherVariantWithMoreBandwidth() throws IOException {
+        PreloadStore store = new PreloadStore(BUDGET_BYTES);
+        createPreloader(store, HIGH_BANDWIDTH).preloadHls(mServer.getUri(MASTER));
+
+        assertTrue(store.contains(mServer.getUri("high/segment0.ts")));
+        assertFalse(mServer.wasRequested("low/index.m3u8"));
+    }
+
+    @Test
+    public void skipsSegmentsOfLivePlaylists() throws IOException {
+        PreloadStore store = new PreloadStore(BUDGET_BYTES);
+        createPreloader(store, LOW_BANDWIDTH).preloadHls(mServer.getUri("live/index.m3u8"));
+
+        assertTrue(store.contains(mServer.getUri("live/index.m3u8")));
+        assertFalse(mServer.wasRequested("live/segment120.ts"));
+    }
+
+    @Test
+    public void evictsOldestEntriesToStayWithinBudget() throws IOException {
+        // Room for one high segment of 9024 bytes, but not for two.
+        PreloadStore store = new PreloadStore(12 * 1024);
+        createPreloader(store, HIGH_BANDWIDTH).preloadHls(mServer.getUri(MASTER));
+
+        assertTrue(store.getSizeBytes() <= store.getMaxBytes());
+        assertTrue(store.contains(mServer.getUri("high/segment1.ts")));
+        assertFalse(store.contains(mServer.getUri("high/segment0.ts")));
+        assertFalse(store.contains(mServer.getUri(MASTER)));
+    }
+
+    @Test
+    public void stopsAtResourceLargerThanBudget() {
+        // Smaller than a low segment of 4512 bytes.
+        PreloadStore store = new PreloadStore(4 * 1024);
+        try {
+            createPreloader(store, LOW_BANDWIDTH).preloadHls(mServer.getUri(MASTER));
+            fail("Expected the segment to exceed the budget");
+        } catch (IOException e) {
+            // Expected.
+        }
+        assertFalse(store.contains(mServer.getUri("low/segment0.ts")));
+        assertFalse(mServer.wasRequested("low/segment1.ts"));
+        assertTrue(store.getSizeBytes() <= store.getMaxBytes());
+    }
+
+    @Test
+    public void servesPreloadedBytesWithoutUpstream() throws IOException {
+        PreloadStore store = new PreloadStore(BUDGET_BYTES);
+        createPreloader(store, LOW_BANDWIDTH).preloadHls(mServer.getUri(MASTER));
+
+        Uri segmentUri = mServer.getUri("low/segment0.ts");
+        PreloadDataSource dataSource = new PreloadDataSource(store, new FailingDataSource());
+        assertEquals(4512, dataSource.open(new DataSpec(segmentUri)));
+        byte[] bytes = readFully(dataSource);
+        dataSource.close();
+
+        assertArrayEquals(mServer.read("low/segment0.ts"), bytes);
+        assertEquals(segmentUri, dataSource.getUri());
+        assertEquals(1, mServer.getRequestCount("low/segment0.ts"));
+
+        // A range within the preloaded resource is served from memory too.
+        assertEquals(188, dataSource.open(new DataSpec.Builder()
+                .setUri(segmentUri).setPosition(188).setLength(188).build()));
+        byte[] packet = readFully(dataSource);
+        dataSource.close();
+        assertEquals(0x47, packet[0] & 0xFF);
+        assertEquals(1, packet[3]);
+    }
+
+    @Test
+    public void debouncesFocusChanges() {
+        PreloadStore store = new PreloadStore(BUDGET_BYTES);
+        final StreamPreloader preloader = createPreloader(store, LOW_BANDWIDTH);
+        preloader.setDebounceMs(200);
+        final Uri passedUri = mServer.getUri(MASTER);
+        final Uri focusedUri = mServer.getUri("high/index.m3u8");
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                preloader.preload(passedUri);
+                preloader.preload(focusedUri);
+            }
+        });
+
+        waitUntilStored(store, mServer.getUri("high/segment1.ts"));
+        assertFalse(mServer.wasRequested(MASTER));
+    }
+
+    @Test
+    public void cancelsInFlightPreloadWhenFocusMovesOn() {
+        PreloadStore store = new PreloadStore(BUDGET_BYTES);
+        final StreamPreloader preloader = createPreloader(store, HIGH_BANDWIDTH);
+        preloader.setDebounceMs(0);
+        mServer.setDelay("high/segment", 1_000);
+        final Uri previousUri = mServer.getUri(MASTER);
+        final Uri focusedUri = mServer.getUri("low/index.m3u8");
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                preloader.preload(previousUri);
+            }
+        });
+        waitUntilRequested("high/segment0.ts");
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                preloader.preload(focusedUri);
+            }
+        });
+
+        // The executor is serial, so the cancelled preload is over once the next one is done.
+        waitUntilStored(store, mServer.getUri("low/segment1.ts"));
+        assertTrue(store.contains(mServer.getUri(MASTER)));
+        assertFalse(store.contains(mServer.getUri("high/segment0.ts")));
+        assertFalse(mServer.wasRequested("high/segment1.ts"));
+    }
+
+    @Test
+    public void resumesStreamWhosePlaylistsAreStored() throws IOException {
+        PreloadStore store = new PreloadStore(BUDGET_BYTES);
+        final StreamPreloader preloader = createPreloader(store, LOW_BANDWIDTH);
+        // Stands in for a preload cancelled once the playlists were fetched.
+        preloader.setSegmentCount(0);
+        preloader.preloadHls(mServer.getUri(MASTER));
+        assertFalse(mServer.wasRequested("low/segment0.ts"));
+
+        preloader.setSegmentCount(StreamPreloader.DEFAULT_SEGMENT_COUNT);
+        preloader.setDebounceMs(0);
+        final Uri uri = mServer.getUri(MASTER);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                preloader.preload(uri);
+            }
+        });
+
+        waitUntilStored(store, mServer.getUri("low/segment1.ts"));
+        assertEquals(1, mServer.getRequestCount(MASTER));
+        assertEquals(1, mServer.getRequestCount("low/index.m3u8"));
+    }
+
+    private void waitUntilStored(PreloadStore store, Uri uri) {
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MS;
+        while (!store.contains(uri)) {
+            if (SystemClock.elapsedRealtime() > deadline) {
+                fail("Timed out waiting for " + uri);
+            }
+            SystemClock.sleep(20);
+        }
+    }
+
+    private void waitUntilRequested(String path) {
+        long deadline = SystemClock.elapsedRealtime() + TIMEOUT_MS;
+        while (!mServer.wasRequested(path)) {
+            if (SystemClock.elapsedRealtime() > deadline) {
+                fail("Timed out waiting for a request of " + path);
+            }
+            SystemClock.sleep(20);
+        }
+    }
+
+    private static byte[] readFully(DataSource dataSource) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Reports a fixed bitrate, so variant selection doesn't depend on the test device.
+     */
+    private static final class FixedBandwidthMeter implements BandwidthMeter {
+        private final long mBitrateEstimate;
+
+        FixedBandwidthMeter(long bitrateEstimate) {
+            mBitrateEstimate = bitrateEstimate;
+        }
+
+        @Override
+        public long getBitrateEstimate() {
+            return mBitrateEstimate;
+        }
+
+        @Nullable
+        @Override
+        public TransferListener getTransferListener() {
+            return null;
+        }
+
+        @Override
+        public void addEventListener(Handler eventHandler, EventListener eventListener) {
+        }
+
+        @Override
+        public void removeEventListener(EventListener eventListener) {
+        }
+    }
+
+    /**
+     * Upstream that fails every request, so only preloaded bytes can be read.
+     */
+    private static final class FailingDataSource implements DataSource {
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            throw new IOException("Not preloaded: " + dataSpec.uri);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            throw new IOException("Not opened");
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return null;
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -14,11 +14,15 @@
 package cs.nzm.atvexo;
 
 import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
 
 import androidx.leanback.widget.BaseCardView;
 import androidx.leanback.widget.Presenter;
 import android.view.ViewGroup;
 
+import java.util.ArrayDeque;
+
 import cs.nzm.atvexo.models.Card;
 
 /**
@@ -32,6 +36,23 @@ public abstract class AbstractCardPresenter<T extends BaseCardView> extends Pres
 
     private static final String TAG = "AbstractCardPresenter";
     private final Context mContext;
+    private final ArrayDeque<T> mPreparedViews = new ArrayDeque<>();
+    private int mViewsToPrepare;
+    private boolean mIdleHandlerAdded;
+
+    private final MessageQueue.IdleHandler mIdleHandler = new MessageQueue.IdleHandler() {
+        @Override
+        public boolean queueIdle() {
+            if (mViewsToPrepare <= 0) {
+                mIdleHandlerAdded = false;
+                return false;
+            }
+            mPreparedViews.add(onCreateView());
+            mViewsToPrepare--;
+            mIdleHandlerAdded = mViewsToPrepare > 0;
+            return mIdleHandlerAdded;
+        }
+    };
 
     /**
      * @param context The current context.
@@ -44,8 +65,36 @@ public abstract class AbstractCardPresenter<T extends BaseCardView> extends Pres
         return mContext;
     }
 
+    /**
+     * Inflates the given number of card views ahead of time, one per idle pass of the main
+     * thread, so scrolling to new rows can use them instead of inflating while frames are due.
+     * Must be called from the main thread.
+     */
+    public void prepareViews(int count) {
+        mViewsToPrepare = Math.max(mViewsToPrepare, count - mPreparedViews.size());
+        if (mViewsToPrepare > 0 && !mIdleHandlerAdded) {
+            mIdleHandlerAdded = true;
+            Looper.myQueue().addIdleHandler(mIdleHandler);
+        }
+    }
+
+    /**
+     * Drops the views prepared by {@link #prepareViews(int)} that were not used yet.
+     */
+    public void clearPreparedViews() {
+        mViewsToPrepare = 0;
+        mPreparedViews.clear();
+        if (mIdleHandlerAdded) {
+            mIdleHandlerAdded = false;
+            Looper.myQueue().removeIdleHandler(mIdleHandler);
+        }
+    }
+
     @Override public final ViewHolder onCreateViewHolder(ViewGroup parent) {
-        T cardView = onCreateView();
+        T cardView = mPreparedViews.poll();
+        if (cardView == null) {
+            cardView = onCreateView();
+        }
         return new ViewHolder(cardView);
     }
 
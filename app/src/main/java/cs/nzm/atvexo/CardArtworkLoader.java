@@ -0,0 +1,120 @@
+package cs.nzm.atvexo;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.widget.ImageView;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.DecodeFormat;
+
+import java.util.HashMap;
+
+import cs.nzm.atvexo.models.Card;
+import cs.nzm.atvexo.utils.Utils;
+
+/**
+ * Loads the artwork of cards with Glide. The artwork is the remote <code>card</code> URL when a
+ * card has one, or its local drawable otherwise. Drawables are looked up by name once and the id
+ * is remembered, since {@link android.content.res.Resources#getIdentifier} is a reflective
+ * lookup.
+ *
+ * <p>Bitmaps are decoded at the size of the card, {@link Card#getWidth()} by
+ * {@link Card#getHeight()} dp or the default size of its layout, and in RGB_565 unless the image
+ * has an alpha channel. Prefetches use exactly the same request, so a prefetched card binds from
+ * Glide's memory cache. Must be used from the main thread.
+ */
+public final class CardArtworkLoader {
+
+    private final Context mContext;
+    private final HashMap<String, Integer> mResourceIds = new HashMap<>();
+    private final int mDefaultWidth;
+    private final int mDefaultHeight;
+
+    public CardArtworkLoader(Context context) {
+        this(context,
+                context.getResources().getDimensionPixelSize(R.dimen.default_image_card_width),
+                context.getResources().getDimensionPixelSize(R.dimen.default_image_card_height));
+    }
+
+    /**
+     * @param defaultWidth Width in pixels to decode artwork at, for cards without a width.
+     * @param defaultHeight Height in pixels to decode artwork at, for cards without a height.
+     */
+    public CardArtworkLoader(Context context, int defaultWidth, int defaultHeight) {
+        mContext = context;
+        mDefaultWidth = defaultWidth;
+        mDefaultHeight = defaultHeight;
+    }
+
+    /**
+     * Loads the artwork of the card into the given view, replacing any pending load.
+     */
+    public void load(Card card, ImageView imageView) {
+        RequestBuilder<Bitmap> request = buildRequest(card);
+        if (request == null) {
+            clear(imageView);
+            return;
+        }
+        request.into(imageView);
+    }
+
+    /**
+     * Loads the artwork of the card into Glide's memory cache, ahead of its binding.
+     */
+    public void prefetch(Card card) {
+        RequestBuilder<Bitmap> request = buildRequest(card);
+        if (request != null) {
+            request.preload();
+        }
+    }
+
+    /**
+     * Cancels any load into the view and releases the bitmap it shows.
+     */
+    public void clear(ImageView imageView) {
+        Glide.with(mContext).clear(imageView);
+        imageView.setImageDrawable(null);
+    }
+
+    @Nullable
+    private RequestBuilder<Bitmap> buildRequest(Card card) {
+        Object model = getModel(card);
+        if (model == null) {
+            return null;
+        }
+        int width = card.getWidth() > 0
+                ? Utils.convertDpToPixel(mContext, card.getWidth()) : mDefaultWidth;
+        int height = card.getHeight() > 0
+                ? Utils.convertDpToPixel(mContext, card.getHeight()) : mDefaultHeight;
+        return Glide.with(mContext)
+                .asBitmap()
+                .load(model)
+                .override(width, height)
+                // Set explicitly: into(ImageView) would otherwise derive it from the scale type
+                // and no longer match the prefetched request.
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565);
+    }
+
+    @Nullable
+    private Object getModel(Card card) {
+        String imageUrl = card.getImageUrl();
+        if (imageUrl != null && !imageUrl.isEmpty()) {
+            return imageUrl;
+        }
+        String resourceName = card.getLocalImageResourceName();
+        if (resourceName == null) {
+            return null;
+        }
+        Integer resourceId = mResourceIds.get(resourceName);
+        if (resourceId == null) {
+            resourceId = mContext.getResources()
+                    .getIdentifier(resourceName, "drawable", mContext.getPackageName());
+            mResourceIds.put(resourceName, resourceId);
+        }
+        return resourceId != 0 ? resourceId : null;
+    }
+}
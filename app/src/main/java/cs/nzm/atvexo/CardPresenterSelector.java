@@ -19,20 +19,51 @@ import android.content.Context;
 import androidx.leanback.widget.Presenter;
 import androidx.leanback.widget.PresenterSelector;
 
-import java.util.HashMap;
-
 import cs.nzm.atvexo.models.Card;
 
 /**
- * This PresenterSelector will decide what Presenter to use depending on a given card's type.
+ * This PresenterSelector will decide what Presenter to use depending on a given card's type and
+ * {@link Layout}.
+ *
+ * <p>Presenters are resolved from a table indexed by type and layout, filled once when the
+ * selector is created, since the selector runs on every bind. A selector hands out a single
+ * presenter per slot, so rows sharing this selector also share their recycled card views. All
+ * types currently share the presenter of their layout.
  */
 public class CardPresenterSelector extends PresenterSelector {
 
-    private final Context mContext;
-    private final HashMap<Card.Type, Presenter> presenters = new HashMap<Card.Type, Presenter>();
+    /**
+     * Card layouts, picked per card by {@link #getLayout(Card)}.
+     */
+    public enum Layout {
+        /** Landscape artwork, the default. */
+        WIDE,
+        /** Portrait artwork, for cards taller than wide. */
+        POSTER,
+        /** Landscape artwork with a badge marking live content. */
+        LIVE_BADGE
+    }
+
+    private static final Card.Type[] TYPES = Card.Type.values();
+    private static final Layout[] LAYOUTS = Layout.values();
+
+    private final Presenter[][] mPresenters = new Presenter[TYPES.length][LAYOUTS.length];
+    private final Presenter[] mDistinctPresenters;
 
     public CardPresenterSelector(Context context) {
-        mContext = context;
+        mDistinctPresenters = new Presenter[] {
+                new ImageCardViewPresenter(context),
+                new ImageCardViewPresenter(context, R.style.PosterCardTheme,
+                        R.dimen.poster_image_card_width, R.dimen.poster_image_card_height, 0),
+                new ImageCardViewPresenter(context, R.style.DefaultCardTheme,
+                        R.dimen.default_image_card_width, R.dimen.default_image_card_height,
+                        R.drawable.live_badge)
+        };
+        for (Presenter[] layoutPresenters : mPresenters) {
+            for (Layout layout : LAYOUTS) {
+                layoutPresenters[layout.ordinal()] = mDistinctPresenters[layout.ordinal()];
+            }
+        }
     }
 
     @Override
@@ -41,12 +72,44 @@ public class CardPresenterSelector extends PresenterSelector {
                 String.format("The PresenterSelector only supports data items of type '%s'",
                         Card.class.getName()));
         Card card = (Card) item;
-        Presenter presenter = presenters.get(card.getType());
-        if (presenter == null) {
-            presenter = new ImageCardViewPresenter(mContext);
+        return getPresenter(card.getType(), getLayout(card));
+    }
+
+    /**
+     * Returns the presenter of the given card type in the {@link Layout#WIDE} layout.
+     */
+    public Presenter getPresenter(Card.Type type) {
+        return getPresenter(type, Layout.WIDE);
+    }
+
+    /**
+     * Returns the presenter of the given card type and layout. A <code>null</code> type is
+     * treated as {@link Card.Type#DEFAULT}.
+     */
+    public Presenter getPresenter(Card.Type type, Layout layout) {
+        if (type == null) {
+            type = Card.Type.DEFAULT;
+        }
+        return mPresenters[type.ordinal()][layout.ordinal()];
+    }
+
+    @Override
+    public Presenter[] getPresenters() {
+        return mDistinctPresenters;
+    }
+
+    /**
+     * Returns the layout of the given card: live cards get a badge, and cards taller than wide
+     * are shown as posters.
+     */
+    public static Layout getLayout(Card card) {
+        if (card.isLive()) {
+            return Layout.LIVE_BADGE;
+        }
+        if (card.getHeight() > card.getWidth()) {
+            return Layout.POSTER;
         }
-        presenters.put(card.getType(), presenter);
-        return presenter;
+        return Layout.WIDE;
     }
 
 }
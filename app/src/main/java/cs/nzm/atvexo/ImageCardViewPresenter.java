@@ -15,23 +15,46 @@
 package cs.nzm.atvexo;
 
 import android.content.Context;
+import android.graphics.drawable.Drawable;
 import android.view.ContextThemeWrapper;
 
+import androidx.annotation.DimenRes;
+import androidx.annotation.DrawableRes;
 import androidx.leanback.widget.ImageCardView;
 
-import com.bumptech.glide.Glide;
-
 import cs.nzm.atvexo.models.Card;
 
 /**
  * A very basic {@link ImageCardView} {@link androidx.leanback.widget.Presenter}.You can
  * pass a custom style for the ImageCardView in the constructor. Use the default constructor to
  * create a Presenter with a default ImageCardView style.
+ *
+ * <p>A presenter may show the same badge on all its cards, such as the badge of live cards.
  */
 public class ImageCardViewPresenter extends AbstractCardPresenter<ImageCardView> {
 
-    public ImageCardViewPresenter(Context context, int cardThemeResId) {
+    private final CardArtworkLoader mArtworkLoader;
+    private final Drawable mBadge;
+
+    /**
+     * @param imageWidthResId Width of the card image set by the theme, used as the size artwork
+     *                        is decoded at.
+     * @param imageHeightResId Height of the card image set by the theme.
+     * @param badgeResId Badge shown on every card, or 0 for none.
+     */
+    public ImageCardViewPresenter(Context context, int cardThemeResId,
+                                  @DimenRes int imageWidthResId, @DimenRes int imageHeightResId,
+                                  @DrawableRes int badgeResId) {
         super(new ContextThemeWrapper(context, cardThemeResId));
+        mArtworkLoader = new CardArtworkLoader(getContext(),
+                getContext().getResources().getDimensionPixelSize(imageWidthResId),
+                getContext().getResources().getDimensionPixelSize(imageHeightResId));
+        mBadge = badgeResId != 0 ? getContext().getDrawable(badgeResId) : null;
+    }
+
+    public ImageCardViewPresenter(Context context, int cardThemeResId) {
+        this(context, cardThemeResId, R.dimen.default_image_card_width,
+                R.dimen.default_image_card_height, 0);
     }
 
     public ImageCardViewPresenter(Context context) {
@@ -41,6 +64,10 @@ public class ImageCardViewPresenter extends AbstractCardPresenter<ImageCardView>
     @Override
     protected ImageCardView onCreateView() {
         ImageCardView imageCardView = new ImageCardView(getContext());
+        if (mBadge != null) {
+            // Drawables can't be shared between views.
+            imageCardView.setBadgeImage(mBadge.getConstantState().newDrawable());
+        }
         return imageCardView;
     }
 
@@ -49,15 +76,21 @@ public class ImageCardViewPresenter extends AbstractCardPresenter<ImageCardView>
         cardView.setTag(card);
         cardView.setTitleText(card.getTitle());
         cardView.setContentText(card.getDescription());
-        if (card.getLocalImageResourceName() != null) {
-            int resourceId = getContext().getResources()
-                    .getIdentifier(card.getLocalImageResourceName(),
-                            "drawable", getContext().getPackageName());
-            Glide.with(getContext())
-                    .asBitmap()
-                    .load(resourceId)
-                    .into(cardView.getMainImageView());
-        }
+        mArtworkLoader.load(card, cardView.getMainImageView());
+    }
+
+    @Override
+    public void onUnbindViewHolder(ImageCardView cardView) {
+        cardView.setTag(null);
+        mArtworkLoader.clear(cardView.getMainImageView());
+    }
+
+    /**
+     * Loads the artwork of a card that is about to be bound, see
+     * {@link CardArtworkLoader#prefetch(Card)}.
+     */
+    public void prefetch(Card card) {
+        mArtworkLoader.prefetch(card);
     }
 
 }
@@ -19,27 +19,41 @@ import android.net.Uri;
 import android.os.Bundle;
 import androidx.core.app.ActivityOptionsCompat;
 import androidx.leanback.app.BrowseSupportFragment;
-import androidx.leanback.widget.ArrayObjectAdapter;
 import androidx.leanback.widget.ListRow;
 import androidx.leanback.widget.ListRowPresenter;
+import androidx.leanback.widget.ObjectAdapter;
 import androidx.leanback.widget.OnItemViewClickedListener;
 import androidx.leanback.widget.OnItemViewSelectedListener;
 import androidx.leanback.widget.Presenter;
-import androidx.leanback.widget.PresenterSelector;
 import androidx.leanback.widget.Row;
 import androidx.leanback.widget.RowPresenter;
-import com.google.gson.Gson;
+import androidx.lifecycle.Lifecycle;
 
+import java.io.IOException;
+import java.util.ArrayList;
+
+import cs.nzm.atvexo.catalog.CatalogLoader;
+import cs.nzm.atvexo.catalog.CatalogRepository;
+import cs.nzm.atvexo.catalog.LazyRowAdapter;
+import cs.nzm.atvexo.catalog.ListCatalogSource;
 import cs.nzm.atvexo.models.Card;
 import cs.nzm.atvexo.models.CardRow;
 import cs.nzm.atvexo.models.MediaMetaData;
+import cs.nzm.atvexo.player.PlaybackTrace;
+import cs.nzm.atvexo.player.StreamPreloader;
 import cs.nzm.atvexo.player.VideoExampleWithExoPlayerActivity;
-import cs.nzm.atvexo.utils.Utils;
 
 
 public class MainFragment extends BrowseSupportFragment {
 
-    private ArrayObjectAdapter mRowsAdapter;
+    private final ListCatalogSource mCatalogSource = new ListCatalogSource();
+    private LazyRowAdapter mRowsAdapter;
+    private AbstractCardPresenter<?> mCardPresenter;
+    private CardPresenterSelector mCardPresenterSelector;
+    private Row mLastSelectedRow;
+    private int mLastSelectedPosition;
+    private CatalogLoader mCatalogLoader;
+    private CatalogRepository mCatalogRepository;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -51,27 +65,89 @@ public class MainFragment extends BrowseSupportFragment {
     }
 
     private void setupRowAdapter() {
-        mRowsAdapter = new ArrayObjectAdapter(new ListRowPresenter());
-        createRows();
+        // One selector for all rows: rows then share presenters, and with them the view pool
+        // that the rows fragment shares between its row grids.
+        mCardPresenterSelector = new CardPresenterSelector(getActivity());
+        mCardPresenter =
+                (AbstractCardPresenter<?>) mCardPresenterSelector.getPresenter(Card.Type.DEFAULT);
+        ListRowPresenter rowPresenter = new ListRowPresenter();
+        for (Presenter presenter : mCardPresenterSelector.getPresenters()) {
+            rowPresenter.setRecycledPoolSize(presenter,
+                    getResources().getInteger(R.integer.card_view_pool_size));
+        }
+        mCardPresenter.prepareViews(getResources().getInteger(R.integer.prepared_card_view_count));
+        mRowsAdapter = new LazyRowAdapter(rowPresenter, mCatalogSource, mCardPresenterSelector);
         setAdapter(mRowsAdapter);
+        createRows();
     }
 
+    /**
+     * Streams the catalog in the background; every row is added as soon as it is parsed. Cards
+     * are only created when their row is shown.
+     */
     private void createRows() {
-        String json = Utils
-                .inputStreamToString(getResources().openRawResource(R.raw.launcher_cards));
-        CardRow[] rows = new Gson().fromJson(json, CardRow[].class);
-        for (CardRow row : rows) {
-            mRowsAdapter.add(createCardRow(row));
+        mCatalogLoader = new CatalogLoader(getActivity());
+        mCatalogLoader.load(R.raw.launcher_cards, new CatalogLoader.Listener() {
+            @Override
+            public void onRowLoaded(CardRow row) {
+                mCatalogSource.addRow(row);
+                mRowsAdapter.notifyRowsAppended(1);
+            }
+
+            @Override
+            public void onCatalogLoaded(int rowCount) {
+                startCatalogSync();
+            }
+
+            @Override
+            public void onCatalogLoadFailed(IOException e) {
+                startCatalogSync();
+            }
+        });
+    }
+
+    /**
+     * Keeps the bundled catalog in sync with the remote one, if the build has a catalog URL.
+     * Started once the bundled catalog is shown, so remote changes are applied as deltas on top of
+     * it.
+     */
+    private void startCatalogSync() {
+        if (BuildConfig.CATALOG_URL.isEmpty()) {
+            return;
+        }
+        mCatalogRepository = new CatalogRepository(getActivity(), BuildConfig.CATALOG_URL,
+                mCatalogSource, mRowsAdapter,
+                getResources().getInteger(R.integer.catalog_refresh_interval_minutes) * 60_000L);
+        if (getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) {
+            mCatalogRepository.start();
+        }
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        if (mCatalogRepository != null) {
+            mCatalogRepository.start();
+        }
+    }
+
+    @Override
+    public void onStop() {
+        if (mCatalogRepository != null) {
+            mCatalogRepository.stop();
         }
+        super.onStop();
     }
 
-    private ListRow createCardRow(CardRow cardRow) {
-        PresenterSelector presenterSelector = new CardPresenterSelector(getActivity());
-        ArrayObjectAdapter listRowAdapter = new ArrayObjectAdapter(presenterSelector);
-        for (Card card : cardRow.getCards()) {
-            listRowAdapter.add(card);
+    @Override
+    public void onDestroy() {
+        if (mCatalogLoader != null) {
+            mCatalogLoader.cancel();
+        }
+        if (mCardPresenter != null) {
+            mCardPresenter.clearPreparedViews();
         }
-        return new ListRow(listRowAdapter);
+        super.onDestroy();
     }
 
     private void setupUIElements() {
@@ -94,24 +170,97 @@ public class MainFragment extends BrowseSupportFragment {
                                   RowPresenter.ViewHolder rowViewHolder, Row row) {
             Intent intent;
             Card card = (Card) item;
-            MediaMetaData mediaMetaData = new MediaMetaData(
-                    Uri.parse(card.getmVideoUrl()), card.getmVideoUrl(),
-                    card.getTitle(), card.getDescription(), null, 0, null, card.isLive()
-            );
             intent = new Intent(getActivity().getBaseContext(),
                     VideoExampleWithExoPlayerActivity.class);
             Bundle bundle = ActivityOptionsCompat.makeSceneTransitionAnimation(getActivity())
                     .toBundle();
-            intent.putExtra(VideoExampleWithExoPlayerActivity.TAG, mediaMetaData);
+            intent.putExtra(VideoExampleWithExoPlayerActivity.TAG, toMediaMetaData(card));
+            if (row instanceof ListRow && rowViewHolder instanceof ListRowPresenter.ViewHolder) {
+                intent.putParcelableArrayListExtra(VideoExampleWithExoPlayerActivity.EXTRA_QUEUE,
+                        getFollowingItems((ListRow) row,
+                                ((ListRowPresenter.ViewHolder) rowViewHolder)
+                                        .getSelectedPosition()));
+            }
+            PlaybackTrace.beginFirstFrame();
             startActivity(intent, bundle);
         }
     }
 
+    private static MediaMetaData toMediaMetaData(Card card) {
+        MediaMetaData mediaMetaData = new MediaMetaData(
+                Uri.parse(card.getmVideoUrl()), card.getmVideoUrl(),
+                card.getTitle(), card.getDescription(), null, 0, null, card.isLive()
+        );
+        mediaMetaData.setThumbnailsUrl(card.getThumbnailsUrl());
+        return mediaMetaData;
+    }
+
+    /**
+     * Returns the cards after the clicked one in its row, which the player queues up to play
+     * next.
+     */
+    private ArrayList<MediaMetaData> getFollowingItems(ListRow row, int position) {
+        ArrayList<MediaMetaData> items = new ArrayList<>();
+        if (position < 0) {
+            return items;
+        }
+        ObjectAdapter adapter = row.getAdapter();
+        int end = Math.min(adapter.size(),
+                position + 1 + getResources().getInteger(R.integer.queued_card_count));
+        for (int i = position + 1; i < end; i++) {
+            Object item = adapter.get(i);
+            if (item instanceof Card && ((Card) item).getmVideoUrl() != null) {
+                items.add(toMediaMetaData((Card) item));
+            }
+        }
+        return items;
+    }
+
     private final class ItemViewSelectedListener implements OnItemViewSelectedListener {
 
         @Override
         public void onItemSelected(Presenter.ViewHolder itemViewHolder, Object item,
                                    RowPresenter.ViewHolder rowViewHolder, Row row) {
+            if (row instanceof ListRow && rowViewHolder instanceof ListRowPresenter.ViewHolder) {
+                prefetchArtwork((ListRow) row,
+                        ((ListRowPresenter.ViewHolder) rowViewHolder).getSelectedPosition());
+            }
+            StreamPreloader preloader = StreamPreloader.getInstance(getActivity());
+            if (!(item instanceof Card)) {
+                preloader.cancel();
+                return;
+            }
+            Card card = (Card) item;
+            if (card.isLive() || card.getmVideoUrl() == null) {
+                preloader.cancel();
+                return;
+            }
+            preloader.preload(Uri.parse(card.getmVideoUrl()));
+        }
+    }
+
+    /**
+     * Prefetches the artwork of the next cards in the direction the user is scrolling the row.
+     */
+    private void prefetchArtwork(ListRow row, int position) {
+        if (position < 0) {
+            return;
+        }
+        int step = row == mLastSelectedRow && position < mLastSelectedPosition ? -1 : 1;
+        mLastSelectedRow = row;
+        mLastSelectedPosition = position;
+        ObjectAdapter adapter = row.getAdapter();
+        int count = getResources().getInteger(R.integer.prefetched_card_count);
+        for (int i = 1; i <= count; i++) {
+            int next = position + i * step;
+            if (next < 0 || next >= adapter.size()) {
+                break;
+            }
+            Object item = adapter.get(next);
+            Presenter presenter = mCardPresenterSelector.getPresenter(item);
+            if (presenter instanceof ImageCardViewPresenter) {
+                ((ImageCardViewPresenter) presenter).prefetch((Card) item);
+            }
         }
     }
 }
@@ -0,0 +1,326 @@
+package cs.nzm.atvexo.catalog;
+
+import android.text.TextUtils;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cs.nzm.atvexo.models.Card;
+import cs.nzm.atvexo.models.CardRow;
+
+/**
+ * Changes between two versions of a catalog, computed off the main thread and applied to a
+ * {@link ListCatalogSource} and its {@link LazyRowAdapter} on the main thread.
+ *
+ * <p>Rows are matched by title, and by order among rows with the same title. Cards are matched by
+ * {@link Card#getId()}: a card whose fields didn't change keeps its current instance, and a row
+ * whose cards, type and shadow all stayed the same is left untouched. The rows, and the cards of
+ * every changed row, are diffed with {@link DiffUtil}, so applying a delta only sends the
+ * adapters the ranges that were inserted, removed, moved or changed. A card counts as changed
+ * when a field it is shown or played with changed, see {@link #areContentsTheSame(Card, Card)};
+ * other fields are updated without rebinding it.
+ */
+public final class CatalogDelta {
+
+    private final List<CardRow> mRows;
+    private final DiffUtil.DiffResult mRowDiff;
+    // Card diffs of the changed rows, by new row position.
+    private final HashMap<Integer, DiffUtil.DiffResult> mCardDiffs;
+    private final int mRowUpdateCount;
+    private final int mChangedCardCount;
+
+    private CatalogDelta(List<CardRow> rows, DiffUtil.DiffResult rowDiff,
+                         HashMap<Integer, DiffUtil.DiffResult> cardDiffs, int changedCardCount) {
+        mRows = rows;
+        mRowDiff = rowDiff;
+        mCardDiffs = cardDiffs;
+        mRowUpdateCount = countUpdates(rowDiff);
+        mChangedCardCount = changedCardCount;
+    }
+
+    /**
+     * Computes the changes from the old rows to the new ones. Decodes every card of both
+     * catalogs and diffs them, so it must not run on the main thread.
+     */
+    public static CatalogDelta compute(List<CardRow> oldRows, List<CardRow> newRows) {
+        HashMap<String, Integer> oldPositionsByKey = new HashMap<>();
+        List<String> oldKeys = getRowKeys(oldRows);
+        for (int i = 0; i < oldKeys.size(); i++) {
+            oldPositionsByKey.put(oldKeys.get(i), i);
+        }
+        List<String> newKeys = getRowKeys(newRows);
+        List<CardRow> rows = new ArrayList<>(newRows.size());
+        HashMap<Integer, DiffUtil.DiffResult> cardDiffs = new HashMap<>();
+        int changedCardCount = 0;
+        for (int i = 0; i < newRows.size(); i++) {
+            CardRow newRow = newRows.get(i);
+            Integer oldPosition = oldPositionsByKey.get(newKeys.get(i));
+            if (oldPosition == null) {
+                rows.add(newRow);
+                changedCardCount += getCards(newRow).size();
+                continue;
+            }
+            CardRow oldRow = oldRows.get(oldPosition);
+            // Snapshot rows create a new card on every get(), so read every old card once.
+            List<Card> oldCards = new ArrayList<>(getCards(oldRow));
+            List<Card> cards = mergeCards(oldCards, getCards(newRow));
+            boolean cardsChanged = !sameInstances(oldCards, cards);
+            if (!cardsChanged && oldRow.getType() == newRow.getType()
+                    && oldRow.useShadow() == newRow.useShadow()) {
+                rows.add(oldRow);
+                continue;
+            }
+            CardRow row = new CardRow();
+            row.setType(newRow.getType());
+            row.setShadow(newRow.useShadow());
+            row.setTitle(newRow.getTitle());
+            row.setCards(cards);
+            rows.add(row);
+            if (cardsChanged) {
+                DiffUtil.DiffResult cardDiff =
+                        DiffUtil.calculateDiff(new CardDiffCallback(oldCards, cards));
+                cardDiffs.put(i, cardDiff);
+                changedCardCount += countUpdates(cardDiff);
+            }
+        }
+        DiffUtil.DiffResult rowDiff = DiffUtil.calculateDiff(
+                new RowDiffCallback(oldKeys, oldRows, newKeys, rows));
+        return new CatalogDelta(rows, rowDiff, cardDiffs, changedCardCount);
+    }
+
+    /**
+     * Returns the new cards of a row, with the old instance of every card whose fields all
+     * stayed the same.
+     */
+    private static List<Card> mergeCards(List<Card> oldCards, List<Card> newCards) {
+        HashMap<Integer, Card> oldCardsById = new HashMap<>();
+        for (Card card : oldCards) {
+            oldCardsById.put(card.getId(), card);
+        }
+        List<Card> merged = new ArrayList<>(newCards.size());
+        for (Card newCard : newCards) {
+            Card oldCard = oldCardsById.get(newCard.getId());
+            merged.add(oldCard != null && sameCard(oldCard, newCard) ? oldCard : newCard);
+        }
+        return merged;
+    }
+
+    private static boolean sameInstances(List<Card> a, List<Card> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameCard(Card a, Card b) {
+        return areContentsTheSame(a, b)
+                && TextUtils.equals(a.getExtraText(), b.getExtraText())
+                && TextUtils.equals(a.getFooterColorString(), b.getFooterColorString())
+                && TextUtils.equals(a.getSelectedColorString(), b.getSelectedColorString())
+                && TextUtils.equals(a.getFooterResource(), b.getFooterResource());
+    }
+
+    /**
+     * Returns whether two versions of a card look and play the same: the fields the card
+     * presenters render, the ones that pick the presenter, and the ones read when the card is
+     * clicked, since a click hands out the bound instance.
+     */
+    static boolean areContentsTheSame(Card a, Card b) {
+        return a.getType() == b.getType()
+                && a.getWidth() == b.getWidth()
+                && a.getHeight() == b.getHeight()
+                && a.isLive() == b.isLive()
+                && TextUtils.equals(a.getTitle(), b.getTitle())
+                && TextUtils.equals(a.getDescription(), b.getDescription())
+                && TextUtils.equals(a.getImageUrl(), b.getImageUrl())
+                && TextUtils.equals(a.getLocalImageResource(), b.getLocalImageResource())
+                && TextUtils.equals(a.getmVideoUrl(), b.getmVideoUrl())
+                && TextUtils.equals(a.getThumbnailsUrl(), b.getThumbnailsUrl());
+    }
+
+    private static List<String> getRowKeys(List<CardRow> rows) {
+        HashMap<String, Integer> occurrences = new HashMap<>();
+        List<String> keys = new ArrayList<>(rows.size());
+        for (CardRow row : rows) {
+            String title = row.getTitle() != null ? row.getTitle() : "";
+            Integer occurrence = occurrences.get(title);
+            occurrence = occurrence != null ? occurrence + 1 : 0;
+            occurrences.put(title, occurrence);
+            keys.add(title + '\u0000' + occurrence);
+        }
+        return keys;
+    }
+
+    private static List<Card> getCards(CardRow row) {
+        List<Card> cards = row.getCards();
+        return cards != null ? cards : new ArrayList<Card>();
+    }
+
+    /**
+     * Returns the rows of the new catalog, with the unchanged rows and cards of the old one.
+     */
+    public List<CardRow> getRows() {
+        return mRows;
+    }
+
+    /**
+     * Returns whether the catalog didn't change at all.
+     */
+    public boolean isEmpty() {
+        return mRowUpdateCount == 0 && mCardDiffs.isEmpty();
+    }
+
+    /**
+     * Returns the number of cards inserted, removed, moved or changed, counting every card of a
+     * new row.
+     */
+    public int getChangedCardCount() {
+        return mChangedCardCount;
+    }
+
+    /**
+     * Applies the delta to the source it was computed from, and notifies the adapter showing that
+     * source. Must be called on the main thread, with the source unchanged since its rows were
+     * read for {@link #compute(List, List)}.
+     */
+    public void applyTo(ListCatalogSource source, final LazyRowAdapter adapter) {
+        source.setRows(mRows);
+        mRowDiff.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                adapter.notifyRowsInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                adapter.notifyRowsRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                adapter.notifyRowMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                // Rows are only changed through their cards, which are dispatched below once
+                // every row is at its new position.
+            }
+        });
+        for (Map.Entry<Integer, DiffUtil.DiffResult> entry : mCardDiffs.entrySet()) {
+            adapter.notifyRowCardsChanged(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the number of items the given diff inserts, removes, moves or changes.
+     */
+    private static int countUpdates(DiffUtil.DiffResult diff) {
+        final int[] count = new int[1];
+        diff.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int itemCount) {
+                count[0] += itemCount;
+            }
+
+            @Override
+            public void onRemoved(int position, int itemCount) {
+                count[0] += itemCount;
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                count[0]++;
+            }
+
+            @Override
+            public void onChanged(int position, int itemCount, Object payload) {
+                count[0] += itemCount;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Diffs rows by key. Unchanged rows are carried over as the same instance.
+     */
+    private static final class RowDiffCallback extends DiffUtil.Callback {
+        private final List<String> mOldKeys;
+        private final List<CardRow> mOldRows;
+        private final List<String> mNewKeys;
+        private final List<CardRow> mNewRows;
+
+        RowDiffCallback(List<String> oldKeys, List<CardRow> oldRows, List<String> newKeys,
+                        List<CardRow> newRows) {
+            mOldKeys = oldKeys;
+            mOldRows = oldRows;
+            mNewKeys = newKeys;
+            mNewRows = newRows;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldKeys.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewKeys.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldKeys.get(oldItemPosition).equals(mNewKeys.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldRows.get(oldItemPosition) == mNewRows.get(newItemPosition);
+        }
+    }
+
+    /**
+     * Diffs the cards of a row by id and by {@link #areContentsTheSame(Card, Card)}.
+     */
+    private static final class CardDiffCallback extends DiffUtil.Callback {
+        private final List<Card> mOldCards;
+        private final List<Card> mNewCards;
+
+        CardDiffCallback(List<Card> oldCards, List<Card> newCards) {
+            mOldCards = oldCards;
+            mNewCards = newCards;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldCards.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewCards.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldCards.get(oldItemPosition).getId() == mNewCards.get(newItemPosition).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            Card oldCard = mOldCards.get(oldItemPosition);
+            Card newCard = mNewCards.get(newItemPosition);
+            return oldCard == newCard || CatalogDelta.areContentsTheSame(oldCard, newCard);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package cs.nzm.atvexo.catalog;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.RawRes;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import cs.nzm.atvexo.models.CardRow;
+
+/**
+ * Loads a catalog off the main thread with a {@link CatalogParser}, posting every row to the main
+ * thread as soon as it has been parsed, so the first rows show before the whole catalog is read.
+ *
+ * <p>After a successful parse the catalog is saved as a {@link CatalogSnapshot}. Later starts map
+ * that snapshot instead of parsing JSON, as long as the app hasn't been updated since.
+ */
+public final class CatalogLoader {
+
+    private static final String TAG = "CatalogLoader";
+
+    /**
+     * Receives the rows of a catalog on the main thread. No callback is made after
+     * {@link #cancel()}.
+     */
+    public interface Listener {
+        void onRowLoaded(CardRow row);
+
+        void onCatalogLoaded(int rowCount);
+
+        void onCatalogLoadFailed(IOException e);
+    }
+
+    private static final ExecutorService sExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    return new Thread(runnable, "CatalogLoader");
+                }
+            });
+
+    private final Context mContext;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final CatalogParser mParser = new CatalogParser();
+    private Future<?> mTask;
+    private volatile boolean mCancelled;
+
+    public CatalogLoader(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * Starts loading the catalog stored in the given raw resource. Must be called from the main
+     * thread, at most once per loader.
+     */
+    public void load(@RawRes final int resId, final Listener listener) {
+        mTask = sExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                long startMs = System.currentTimeMillis();
+                File snapshotFile = getSnapshotFile(resId);
+                long stamp = getSnapshotStamp();
+                CatalogSnapshot snapshot = CatalogSnapshot.open(snapshotFile, stamp);
+                if (snapshot != null) {
+                    Log.d(TAG, "Mapped snapshot in " + (System.currentTimeMillis() - startMs)
+                            + "ms");
+                    deliver(snapshot.getRows(), listener);
+                    return;
+                }
+                try {
+                    List<CardRow> rows = parse(resId, listener);
+                    Log.d(TAG, "Parsed " + rows.size() + " rows in "
+                            + (System.currentTimeMillis() - startMs) + "ms");
+                    writeSnapshot(snapshotFile, stamp, rows);
+                } catch (final IOException e) {
+                    if (mCancelled) {
+                        return;
+                    }
+                    Log.w(TAG, "Failed to load catalog", e);
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onCatalogLoadFailed(e);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private List<CardRow> parse(@RawRes int resId, final Listener listener) throws IOException {
+        final List<CardRow> rows = new ArrayList<>();
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                mContext.getResources().openRawResource(resId), StandardCharsets.UTF_8))) {
+            mParser.parse(reader, new CatalogParser.Callback() {
+                @Override
+                public void onRowParsed(final CardRow row) {
+                    rows.add(row);
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            listener.onRowLoaded(row);
+                        }
+                    });
+                }
+            });
+        }
+        postLoaded(rows.size(), listener);
+        return rows;
+    }
+
+    private void deliver(final List<CardRow> rows, final Listener listener) {
+        for (final CardRow row : rows) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onRowLoaded(row);
+                }
+            });
+        }
+        postLoaded(rows.size(), listener);
+    }
+
+    private void postLoaded(final int rowCount, final Listener listener) {
+        post(new Runnable() {
+            @Override
+            public void run() {
+                listener.onCatalogLoaded(rowCount);
+            }
+        });
+    }
+
+    private void writeSnapshot(File file, long stamp, List<CardRow> rows) {
+        if (mCancelled) {
+            return;
+        }
+        try {
+            CatalogSnapshot.write(file, stamp, rows);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write snapshot", e);
+            file.delete();
+        }
+    }
+
+    private File getSnapshotFile(@RawRes int resId) {
+        return new File(mContext.getFilesDir(),
+                "catalog-" + mContext.getResources().getResourceEntryName(resId) + ".snapshot");
+    }
+
+    /**
+     * Snapshots of a bundled catalog are valid until the app is updated, which may ship a new
+     * catalog.
+     */
+    private long getSnapshotStamp() {
+        try {
+            return mContext.getPackageManager()
+                    .getPackageInfo(mContext.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Stops loading. Rows that were already posted but not yet delivered are dropped.
+     */
+    public void cancel() {
+        mCancelled = true;
+        mHandler.removeCallbacksAndMessages(null);
+        if (mTask != null) {
+            mTask.cancel(true);
+        }
+    }
+
+    private void post(final Runnable runnable) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!mCancelled) {
+                    runnable.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,120 @@
+package cs.nzm.atvexo.catalog;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import cs.nzm.atvexo.models.Card;
+import cs.nzm.atvexo.models.CardRow;
+
+/**
+ * Streams a catalog in the format of <code>launcher_cards.json</code>, an array of
+ * {@link CardRow}s, handing out every row as soon as it has been read. Unlike binding the whole
+ * document at once, memory use is bounded by the largest row rather than by the catalog.
+ *
+ * <p>Cards are still bound by Gson, so they honour the {@link
+ * com.google.gson.annotations.SerializedName} mapping of {@link Card}. Parsing stops with an
+ * {@link InterruptedIOException} when the parsing thread is interrupted.
+ */
+public final class CatalogParser {
+
+    /**
+     * Receives the rows of a catalog, in order, on the parsing thread.
+     */
+    public interface Callback {
+        void onRowParsed(CardRow row);
+    }
+
+    private final TypeAdapter<Card> mCardAdapter;
+
+    public CatalogParser() {
+        this(new Gson());
+    }
+
+    public CatalogParser(Gson gson) {
+        mCardAdapter = gson.getAdapter(Card.class);
+    }
+
+    /**
+     * Parses a whole catalog. The reader is not closed.
+     *
+     * @return The number of rows parsed.
+     * @throws IOException If the catalog can't be read or is malformed.
+     */
+    public int parse(Reader reader, Callback callback) throws IOException {
+        try {
+            return parseRows(new JsonReader(reader), callback);
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed catalog", e);
+        }
+    }
+
+    private int parseRows(JsonReader jsonReader, Callback callback) throws IOException {
+        jsonReader.beginArray();
+        int rowCount = 0;
+        while (jsonReader.hasNext()) {
+            callback.onRowParsed(readRow(jsonReader));
+            rowCount++;
+        }
+        jsonReader.endArray();
+        return rowCount;
+    }
+
+    private CardRow readRow(JsonReader reader) throws IOException {
+        CardRow row = new CardRow();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.skipValue();
+                continue;
+            }
+            switch (name) {
+                case "type":
+                    row.setType(reader.nextInt());
+                    break;
+                case "shadow":
+                    row.setShadow(reader.nextBoolean());
+                    break;
+                case "title":
+                    row.setTitle(reader.nextString());
+                    break;
+                case "cards":
+                    row.setCards(readCards(reader));
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if (row.getCards() == null) {
+            row.setCards(new ArrayList<Card>());
+        }
+        return row;
+    }
+
+    private List<Card> readCards(JsonReader reader) throws IOException {
+        List<Card> cards = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedIOException("Catalog parsing interrupted");
+            }
+            Card card = mCardAdapter.read(reader);
+            if (card != null) {
+                cards.add(card);
+            }
+        }
+        reader.endArray();
+        return cards;
+    }
+}
@@ -0,0 +1,303 @@
+package cs.nzm.atvexo.catalog;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPInputStream;
+
+import cs.nzm.atvexo.models.CardRow;
+
+/**
+ * Keeps a {@link ListCatalogSource} in sync with a remote catalog, in the format of
+ * <code>launcher_cards.json</code>, refreshing it periodically while started.
+ *
+ * <p>Requests are conditional: the <code>ETag</code> and <code>Last-Modified</code> of the last
+ * response are kept in preferences, along with a copy of its body, so an unchanged catalog costs
+ * a <code>304</code> and no parsing. Responses may be gzipped. A changed catalog is parsed and
+ * diffed against the shown one in the background, and only the resulting {@link CatalogDelta} is
+ * applied on the main thread.
+ */
+public final class CatalogRepository {
+
+    private static final String TAG = "CatalogRepository";
+
+    private static final String PREFERENCES_NAME = "catalog_sync";
+    private static final String KEY_URL = "url";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "last_modified";
+    private static final String BODY_FILE_NAME = "catalog-remote.json";
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 15_000;
+
+    /**
+     * Receives the outcome of every refresh on the main thread. No callback is made after
+     * {@link #stop()}.
+     */
+    public interface Listener {
+        /**
+         * Called after a delta was applied to the source. Not called when the catalog is
+         * unchanged.
+         */
+        void onCatalogUpdated(CatalogDelta delta);
+
+        void onCatalogSyncFailed(IOException e);
+    }
+
+    private static final ExecutorService sExecutor =
+            Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    return new Thread(runnable, "CatalogRepository");
+                }
+            });
+
+    private final String mUrl;
+    private final ListCatalogSource mSource;
+    private final LazyRowAdapter mAdapter;
+    private final SharedPreferences mPreferences;
+    private final File mBodyFile;
+    private final CatalogParser mParser = new CatalogParser();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final long mRefreshIntervalMs;
+    private Listener mListener;
+    private Future<?> mTask;
+    private boolean mStarted;
+    // Whether the source shows the stored body; only then a 304 needs no further work.
+    private volatile boolean mUpToDate;
+
+    private final Runnable mRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+            mHandler.postDelayed(this, mRefreshIntervalMs);
+        }
+    };
+
+    /**
+     * @param url URL of the remote catalog.
+     * @param source The source to keep in sync.
+     * @param adapter The adapter showing the source, notified of every change.
+     * @param refreshIntervalMs Time between refreshes while started.
+     */
+    public CatalogRepository(Context context, String url, ListCatalogSource source,
+                             LazyRowAdapter adapter, long refreshIntervalMs) {
+        context = context.getApplicationContext();
+        mUrl = url;
+        mSource = source;
+        mAdapter = adapter;
+        mRefreshIntervalMs = refreshIntervalMs;
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mBodyFile = new File(context.getFilesDir(), BODY_FILE_NAME);
+        if (!url.equals(mPreferences.getString(KEY_URL, null))) {
+            // Validators and body of another catalog don't apply.
+            mPreferences.edit().clear().putString(KEY_URL, url).apply();
+            mBodyFile.delete();
+        }
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Refreshes now and then periodically, until {@link #stop()}. Must be called from the main
+     * thread.
+     */
+    public void start() {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+        mHandler.post(mRefreshRunnable);
+    }
+
+    /**
+     * Stops refreshing. A refresh in progress is cancelled and its result dropped.
+     */
+    public void stop() {
+        mStarted = false;
+        mHandler.removeCallbacksAndMessages(null);
+        if (mTask != null) {
+            mTask.cancel(true);
+            mTask = null;
+        }
+    }
+
+    /**
+     * Fetches the catalog once, unless a refresh is already in progress. Must be called from the
+     * main thread.
+     */
+    public void refresh() {
+        if (mTask != null && !mTask.isDone()) {
+            return;
+        }
+        final List<CardRow> rows = mSource.getRows();
+        final int version = mSource.getVersion();
+        mTask = sExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    boolean modified = fetch();
+                    if (!modified && mUpToDate) {
+                        Log.d(TAG, "Catalog not modified");
+                        return;
+                    }
+                    if (!mBodyFile.exists()) {
+                        return;
+                    }
+                    CatalogDelta delta = CatalogDelta.compute(rows, parseBody());
+                    postDelta(delta, version);
+                } catch (final IOException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    Log.w(TAG, "Failed to sync catalog", e);
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (mStarted && mListener != null) {
+                                mListener.onCatalogSyncFailed(e);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void postDelta(final CatalogDelta delta, final int version) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!mStarted) {
+                    return;
+                }
+                if (mSource.getVersion() != version) {
+                    // The source changed while diffing; diff again on the next refresh.
+                    mUpToDate = false;
+                    return;
+                }
+                mUpToDate = true;
+                if (delta.isEmpty()) {
+                    return;
+                }
+                Log.d(TAG, "Applying delta with " + delta.getChangedCardCount()
+                        + " changed cards");
+                delta.applyTo(mSource, mAdapter);
+                if (mListener != null) {
+                    mListener.onCatalogUpdated(delta);
+                }
+            }
+        });
+    }
+
+    /**
+     * Makes a conditional request for the catalog and stores a changed body.
+     *
+     * @return Whether the catalog changed since the last request.
+     */
+    private boolean fetch() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(mUrl).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            // Set explicitly, so the body is decompressed here rather than transparently.
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            if (mBodyFile.exists()) {
+                String etag = mPreferences.getString(KEY_ETAG, null);
+                String lastModified = mPreferences.getString(KEY_LAST_MODIFIED, null);
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", etag);
+                }
+                if (lastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", lastModified);
+                }
+            }
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return false;
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected response " + responseCode + " for " + mUrl);
+            }
+            InputStream input = new BufferedInputStream(connection.getInputStream());
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+                input = new GZIPInputStream(input);
+            }
+            try {
+                writeBody(input);
+            } finally {
+                input.close();
+            }
+            mPreferences.edit()
+                    .putString(KEY_ETAG, connection.getHeaderField("ETag"))
+                    .putString(KEY_LAST_MODIFIED, connection.getHeaderField("Last-Modified"))
+                    .apply();
+            return true;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Replaces the stored body atomically, so a failed download keeps the previous one.
+     */
+    private void writeBody(InputStream input) throws IOException {
+        File tmpFile = new File(mBodyFile.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(tmpFile)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            output.getFD().sync();
+        } catch (IOException e) {
+            tmpFile.delete();
+            throw e;
+        }
+        if (!tmpFile.renameTo(mBodyFile)) {
+            tmpFile.delete();
+            throw new IOException("Failed to move catalog to " + mBodyFile);
+        }
+    }
+
+    private List<CardRow> parseBody() throws IOException {
+        final List<CardRow> rows = new ArrayList<>();
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(mBodyFile), StandardCharsets.UTF_8))) {
+            mParser.parse(reader, new CatalogParser.Callback() {
+                @Override
+                public void onRowParsed(CardRow row) {
+                    rows.add(row);
+                }
+            });
+        } catch (IOException e) {
+            // A body that can't be parsed must not be kept, or a 304 would keep it forever.
+            mBodyFile.delete();
+            throw e;
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,285 @@
+package cs.nzm.atvexo.catalog;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+
+import cs.nzm.atvexo.models.Card;
+import cs.nzm.atvexo.models.CardRow;
+
+/**
+ * Compact binary copy of a parsed catalog, read back through a memory-mapped file so the next
+ * start can show rows without parsing JSON or decoding cards up front.
+ *
+ * <p>The file starts with a header: magic, format version, a stamp identifying the source of the
+ * catalog (the app's last update time, so a new build never reads an old snapshot), the payload
+ * length and the CRC32 of the payload. The payload holds the rows, each followed by its cards.
+ * Every card record is prefixed with its length, so the cards of a row can be indexed without
+ * decoding them. Strings are stored as a length and UTF-8 bytes, with a length of -1 for
+ * <code>null</code>.
+ *
+ * <p>A snapshot whose header or checksum doesn't match is ignored, and the caller falls back to
+ * the JSON catalog.
+ */
+public final class CatalogSnapshot {
+
+    private static final String TAG = "CatalogSnapshot";
+
+    private static final int MAGIC = 0x41545643; // "ATVC"
+    static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 4 + 4;
+
+    private final ByteBuffer mPayload;
+    private final List<CardRow> mRows;
+
+    private CatalogSnapshot(ByteBuffer payload, List<CardRow> rows) {
+        mPayload = payload;
+        mRows = rows;
+    }
+
+    /**
+     * Returns the rows of the snapshot. Their card lists only index the card records; every
+     * {@link List#get(int)} returns a new {@link SnapshotCard} that decodes its fields on first
+     * access, so callers that hold on to cards should cache them.
+     */
+    public List<CardRow> getRows() {
+        return mRows;
+    }
+
+    ByteBuffer getPayload() {
+        return mPayload;
+    }
+
+    /**
+     * Maps the snapshot stored in the given file.
+     *
+     * @param stamp The stamp the snapshot must have been written with.
+     * @return The snapshot, or <code>null</code> if there is none or it doesn't match.
+     */
+    @Nullable
+    public static CatalogSnapshot open(File file, long stamp) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            if (size < HEADER_LENGTH) {
+                Log.w(TAG, "Snapshot too short: " + size);
+                return null;
+            }
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                Log.w(TAG, "Snapshot has an unknown format");
+                return null;
+            }
+            if (buffer.getLong() != stamp) {
+                Log.d(TAG, "Snapshot is stale");
+                return null;
+            }
+            int payloadLength = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (payloadLength != size - HEADER_LENGTH) {
+                Log.w(TAG, "Snapshot is truncated");
+                return null;
+            }
+            buffer.position(HEADER_LENGTH);
+            ByteBuffer payload = buffer.slice().asReadOnlyBuffer();
+            if (checksum(payload) != checksum) {
+                Log.w(TAG, "Snapshot checksum mismatch");
+                return null;
+            }
+            return new CatalogSnapshot(payload, readRows(payload));
+        } catch (IOException | RuntimeException e) {
+            // Buffer underflows and bad lengths surface as runtime exceptions.
+            Log.w(TAG, "Failed to read snapshot " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given rows. The file is replaced atomically, so a crash while
+     * writing never leaves a partial snapshot behind.
+     */
+    public static void write(File file, long stamp, List<CardRow> rows) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        ByteArrayOutputStream cardBytes = new ByteArrayOutputStream();
+        DataOutputStream card = new DataOutputStream(cardBytes);
+        payload.writeInt(rows.size());
+        for (CardRow row : rows) {
+            List<Card> cards = row.getCards();
+            payload.writeInt(row.getType());
+            payload.writeBoolean(row.useShadow());
+            writeString(payload, row.getTitle());
+            payload.writeInt(cards.size());
+            for (Card c : cards) {
+                cardBytes.reset();
+                writeCard(card, c);
+                payload.writeInt(cardBytes.size());
+                cardBytes.writeTo(payload);
+            }
+        }
+        payload.flush();
+        byte[] payloadArray = payloadBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payloadArray, 0, payloadArray.length);
+
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOutput = new FileOutputStream(tmpFile)) {
+            DataOutputStream output = new DataOutputStream(fileOutput);
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(stamp);
+            output.writeInt(payloadArray.length);
+            output.writeInt((int) crc.getValue());
+            output.write(payloadArray);
+            output.flush();
+            fileOutput.getFD().sync();
+        }
+        if (!tmpFile.renameTo(file)) {
+            tmpFile.delete();
+            throw new IOException("Failed to move snapshot to " + file);
+        }
+    }
+
+    private static void writeCard(DataOutputStream output, Card card) throws IOException {
+        output.writeInt(card.getId());
+        output.writeByte(card.getType() != null ? card.getType().ordinal() : -1);
+        output.writeInt(card.getWidth());
+        output.writeInt(card.getHeight());
+        output.writeBoolean(card.isLive());
+        writeString(output, card.getTitle());
+        writeString(output, card.getDescription());
+        writeString(output, card.getExtraText());
+        writeString(output, card.getImageUrl());
+        writeString(output, card.getFooterColorString());
+        writeString(output, card.getSelectedColorString());
+        writeString(output, card.getLocalImageResource());
+        writeString(output, card.getFooterResource());
+        writeString(output, card.getmVideoUrl());
+        writeString(output, card.getThumbnailsUrl());
+    }
+
+    /**
+     * Fills the given card from the record at the given position of the payload. Reads through a
+     * duplicate, so several threads can decode cards at once.
+     */
+    static void readCard(ByteBuffer payload, int position, Card card) {
+        ByteBuffer buffer = payload.duplicate();
+        buffer.position(position);
+        card.setId(buffer.getInt());
+        int type = buffer.get();
+        card.setType(type >= 0 ? Card.Type.values()[type] : null);
+        card.setWidth(buffer.getInt());
+        card.setHeight(buffer.getInt());
+        card.setLive(buffer.get() != 0);
+        card.setTitle(readString(buffer));
+        card.setDescription(readString(buffer));
+        card.setExtraText(readString(buffer));
+        card.setImageUrl(readString(buffer));
+        card.setFooterColor(readString(buffer));
+        card.setSelectedColor(readString(buffer));
+        card.setLocalImageResource(readString(buffer));
+        card.setFooterResource(readString(buffer));
+        card.setmVideoUrl(readString(buffer));
+        card.setThumbnailsUrl(readString(buffer));
+    }
+
+    private static List<CardRow> readRows(ByteBuffer payload) {
+        ByteBuffer buffer = payload.duplicate();
+        int rowCount = buffer.getInt();
+        List<CardRow> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            CardRow row = new CardRow();
+            row.setType(buffer.getInt());
+            row.setShadow(buffer.get() != 0);
+            row.setTitle(readString(buffer));
+            int cardCount = buffer.getInt();
+            int[] positions = new int[cardCount];
+            for (int j = 0; j < cardCount; j++) {
+                int length = buffer.getInt();
+                positions[j] = buffer.position();
+                buffer.position(positions[j] + length);
+            }
+            row.setCards(new SnapshotCardList(payload, positions));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Cards of a snapshot row, as positions of their records in the payload.
+     */
+    private static final class SnapshotCardList extends AbstractList<Card> implements RandomAccess {
+        private final ByteBuffer mPayload;
+        private final int[] mPositions;
+
+        SnapshotCardList(ByteBuffer payload, int[] positions) {
+            mPayload = payload;
+            mPositions = positions;
+        }
+
+        @Override
+        public Card get(int index) {
+            int position = mPositions[index];
+            return new SnapshotCard(mPayload, position, mPayload.getInt(position));
+        }
+
+        @Override
+        public int size() {
+            return mPositions.length;
+        }
+    }
+
+    private static void writeString(DataOutputStream output, @Nullable String value)
+            throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        ByteBuffer buffer = payload.duplicate();
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        while (buffer.hasRemaining()) {
+            int length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,18 @@
+package cs.nzm.atvexo.catalog;
+
+import cs.nzm.atvexo.models.Card;
+
+/**
+ * Random access to the rows and cards of a catalog, for adapters that only materialize what is
+ * on screen. Accessed from the main thread.
+ */
+public interface CatalogSource {
+
+    int getRowCount();
+
+    String getRowTitle(int row);
+
+    int getCardCount(int row);
+
+    Card getCard(int row, int index);
+}
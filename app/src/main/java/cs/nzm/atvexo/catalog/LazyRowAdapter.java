@@ -0,0 +1,138 @@
+package cs.nzm.atvexo.catalog;
+
+import android.util.LruCache;
+
+import androidx.leanback.widget.ListRow;
+import androidx.leanback.widget.ObjectAdapter;
+import androidx.leanback.widget.Presenter;
+import androidx.leanback.widget.PresenterSelector;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.Map;
+
+/**
+ * {@link ObjectAdapter} of {@link ListRow}s over a {@link CatalogSource}. A row and its
+ * {@link PagedCardAdapter} are only created when the browse fragment binds the row, and rows
+ * that scrolled far away are dropped again, so memory stays flat however many rows the catalog
+ * has.
+ */
+public class LazyRowAdapter extends ObjectAdapter {
+
+    public static final int DEFAULT_MAX_ROWS = 12;
+
+    private final CatalogSource mSource;
+    private final PresenterSelector mCardPresenterSelector;
+    private final LruCache<Integer, ListRow> mRows;
+
+    /**
+     * @param rowPresenter Presenter of the rows.
+     * @param source The catalog to show.
+     * @param cardPresenterSelector Selector shared by the card adapters of all rows.
+     */
+    public LazyRowAdapter(Presenter rowPresenter, CatalogSource source,
+                          PresenterSelector cardPresenterSelector) {
+        this(rowPresenter, source, cardPresenterSelector, DEFAULT_MAX_ROWS);
+    }
+
+    public LazyRowAdapter(Presenter rowPresenter, CatalogSource source,
+                          PresenterSelector cardPresenterSelector, int maxRows) {
+        super(rowPresenter);
+        mSource = source;
+        mCardPresenterSelector = cardPresenterSelector;
+        mRows = new LruCache<>(maxRows);
+    }
+
+    public CatalogSource getSource() {
+        return mSource;
+    }
+
+    @Override
+    public int size() {
+        return mSource.getRowCount();
+    }
+
+    @Override
+    public Object get(int position) {
+        ListRow row = mRows.get(position);
+        if (row == null) {
+            row = new ListRow(position, null,
+                    new PagedCardAdapter(mCardPresenterSelector, mSource, position));
+            mRows.put(position, row);
+        }
+        return row;
+    }
+
+    /**
+     * Tells the adapter that rows were added to the end of the source.
+     */
+    public void notifyRowsAppended(int count) {
+        notifyItemRangeInserted(size() - count, count);
+    }
+
+    /**
+     * Tells the adapter that rows were inserted into the source at the given position.
+     */
+    public void notifyRowsInserted(int position, int count) {
+        shiftRows(position, count);
+        notifyItemRangeInserted(position, count);
+    }
+
+    /**
+     * Tells the adapter that rows at the given position were removed from the source.
+     */
+    public void notifyRowsRemoved(int position, int count) {
+        for (int i = position; i < position + count; i++) {
+            mRows.remove(i);
+        }
+        shiftRows(position + count, -count);
+        notifyItemRangeRemoved(position, count);
+    }
+
+    /**
+     * Tells the adapter that a row of the source moved.
+     */
+    public void notifyRowMoved(int fromPosition, int toPosition) {
+        ListRow row = mRows.remove(fromPosition);
+        shiftRows(fromPosition + 1, -1);
+        shiftRows(toPosition, 1);
+        if (row != null) {
+            putRow(toPosition, row);
+        }
+        notifyItemMoved(fromPosition, toPosition);
+    }
+
+    /**
+     * Tells the adapter that the cards of the row at the given position changed as described by
+     * the given diff. Only the changed ranges of cards are rebound; the row keeps its view and
+     * its focus.
+     */
+    public void notifyRowCardsChanged(int position, DiffUtil.DiffResult cardDiff) {
+        ListRow row = mRows.get(position);
+        if (row != null) {
+            ((PagedCardAdapter) row.getAdapter()).notifyCardsChanged(cardDiff);
+        }
+    }
+
+    /**
+     * Moves the cached rows at or after the given position by the given offset, keeping their
+     * order of use.
+     */
+    private void shiftRows(int fromPosition, int offset) {
+        Map<Integer, ListRow> rows = mRows.snapshot();
+        mRows.evictAll();
+        for (Map.Entry<Integer, ListRow> entry : rows.entrySet()) {
+            int position = entry.getKey();
+            if (position >= fromPosition) {
+                putRow(position + offset, entry.getValue());
+            } else {
+                mRows.put(position, entry.getValue());
+            }
+        }
+    }
+
+    private void putRow(int position, ListRow row) {
+        row.setId(position);
+        ((PagedCardAdapter) row.getAdapter()).setRow(position);
+        mRows.put(position, row);
+    }
+}
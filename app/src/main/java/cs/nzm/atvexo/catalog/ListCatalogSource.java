@@ -0,0 +1,83 @@
+package cs.nzm.atvexo.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cs.nzm.atvexo.models.Card;
+import cs.nzm.atvexo.models.CardRow;
+
+/**
+ * {@link CatalogSource} over a list of {@link CardRow}s that grows as rows are loaded. Rows from
+ * a {@link CatalogSnapshot} keep their lazy card lists, so cards are only created when an adapter
+ * asks for them.
+ *
+ * <p>Every change bumps {@link #getVersion()}, so work based on a copy of the rows can tell
+ * whether it is still current.
+ */
+public final class ListCatalogSource implements CatalogSource {
+
+    private final List<CardRow> mRows = new ArrayList<>();
+    private int mVersion;
+
+    public void addRow(CardRow row) {
+        mRows.add(row);
+        mVersion++;
+    }
+
+    public void addRow(int position, CardRow row) {
+        mRows.add(position, row);
+        mVersion++;
+    }
+
+    public void setRow(int position, CardRow row) {
+        mRows.set(position, row);
+        mVersion++;
+    }
+
+    public void removeRow(int position) {
+        mRows.remove(position);
+        mVersion++;
+    }
+
+    public void setRows(List<CardRow> rows) {
+        mRows.clear();
+        mRows.addAll(rows);
+        mVersion++;
+    }
+
+    /**
+     * Returns a copy of the rows, which may be handed to another thread.
+     */
+    public List<CardRow> getRows() {
+        return new ArrayList<>(mRows);
+    }
+
+    public int getVersion() {
+        return mVersion;
+    }
+
+    public CardRow getRow(int row) {
+        return mRows.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return mRows.size();
+    }
+
+    @Override
+    public String getRowTitle(int row) {
+        return mRows.get(row).getTitle();
+    }
+
+    @Override
+    public int getCardCount(int row) {
+        List<Card> cards = mRows.get(row).getCards();
+        return cards != null ? cards.size() : 0;
+    }
+
+    @Override
+    public Card getCard(int row, int index) {
+        return mRows.get(row).getCards().get(index);
+    }
+}
@@ -0,0 +1,137 @@
+package cs.nzm.atvexo.catalog;
+
+import androidx.leanback.widget.ObjectAdapter;
+import androidx.leanback.widget.PresenterSelector;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cs.nzm.atvexo.models.Card;
+
+/**
+ * {@link ObjectAdapter} over the cards of one catalog row, fetched from a {@link CatalogSource}
+ * in pages. Pages are loaded when a card of theirs is first bound, and only the most recently
+ * used {@link #getMaxPages()} pages are kept, so however long the row, at most a few pages around
+ * the focused card are held in memory.
+ */
+public class PagedCardAdapter extends ObjectAdapter {
+
+    public static final int DEFAULT_PAGE_SIZE = 25;
+    public static final int DEFAULT_MAX_PAGES = 4;
+
+    private final CatalogSource mSource;
+    private int mRow;
+    private final int mPageSize;
+    private final int mMaxPages;
+    private final LinkedHashMap<Integer, Card[]> mPages;
+
+    public PagedCardAdapter(PresenterSelector presenterSelector, CatalogSource source, int row) {
+        this(presenterSelector, source, row, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    public PagedCardAdapter(PresenterSelector presenterSelector, CatalogSource source, int row,
+                            int pageSize, final int maxPages) {
+        super(presenterSelector);
+        mSource = source;
+        mRow = row;
+        mPageSize = pageSize;
+        mMaxPages = maxPages;
+        mPages = new LinkedHashMap<Integer, Card[]>(maxPages + 1, 1f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Card[]> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    public int getRow() {
+        return mRow;
+    }
+
+    /**
+     * Moves the adapter to another row of the source, after rows before it were added or
+     * removed. The cards are the same, so observers are not notified.
+     */
+    void setRow(int row) {
+        mRow = row;
+    }
+
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    public int getMaxPages() {
+        return mMaxPages;
+    }
+
+    @Override
+    public int size() {
+        return mSource.getCardCount(mRow);
+    }
+
+    @Override
+    public Object get(int position) {
+        return getPage(position / mPageSize)[position % mPageSize];
+    }
+
+    /**
+     * Returns the card at the given position if its page is loaded, without loading it.
+     */
+    public Card peek(int position) {
+        Card[] page = mPages.get(position / mPageSize);
+        return page != null ? page[position % mPageSize] : null;
+    }
+
+    private Card[] getPage(int pageIndex) {
+        Card[] page = mPages.get(pageIndex);
+        if (page == null) {
+            int start = pageIndex * mPageSize;
+            int end = Math.min(start + mPageSize, size());
+            page = new Card[end - start];
+            for (int i = start; i < end; i++) {
+                page[i - start] = mSource.getCard(mRow, i);
+            }
+            mPages.put(pageIndex, page);
+        }
+        return page;
+    }
+
+    /**
+     * Drops every loaded page and tells observers about the cards that changed in the source, as
+     * described by the given diff.
+     */
+    public void notifyCardsChanged(DiffUtil.DiffResult cardDiff) {
+        mPages.clear();
+        cardDiff.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                notifyItemRangeInserted(position, count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                notifyItemRangeRemoved(position, count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                notifyItemMoved(fromPosition, toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                notifyItemRangeChanged(position, count);
+            }
+        });
+    }
+
+    /**
+     * Drops every loaded page and tells observers that all cards changed.
+     */
+    public void invalidate() {
+        mPages.clear();
+        notifyChanged();
+    }
+}
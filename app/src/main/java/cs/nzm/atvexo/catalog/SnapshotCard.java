@@ -0,0 +1,258 @@
+package cs.nzm.atvexo.catalog;
+
+import android.os.Parcel;
+
+import java.nio.ByteBuffer;
+
+import cs.nzm.atvexo.models.Card;
+
+/**
+ * {@link Card} backed by a record of a {@link CatalogSnapshot}. Only the id is read up front; the
+ * other fields are decoded from the mapped snapshot the first time any of them is accessed, which
+ * for most cards is when the presenter binds them.
+ *
+ * <p>Parcelling writes a fully decoded card, which is read back as a plain {@link Card}.
+ */
+final class SnapshotCard extends Card {
+
+    private final ByteBuffer mPayload;
+    private final int mPosition;
+    private volatile boolean mDecoded;
+
+    SnapshotCard(ByteBuffer payload, int position, int id) {
+        mPayload = payload;
+        mPosition = position;
+        super.setId(id);
+    }
+
+    private void ensureDecoded() {
+        if (mDecoded) {
+            return;
+        }
+        synchronized (this) {
+            if (!mDecoded) {
+                Card card = new Card();
+                CatalogSnapshot.readCard(mPayload, mPosition, card);
+                super.setType(card.getType());
+                super.setWidth(card.getWidth());
+                super.setHeight(card.getHeight());
+                super.setLive(card.isLive());
+                super.setTitle(card.getTitle());
+                super.setDescription(card.getDescription());
+                super.setExtraText(card.getExtraText());
+                super.setImageUrl(card.getImageUrl());
+                super.setFooterColor(card.getFooterColorString());
+                super.setSelectedColor(card.getSelectedColorString());
+                super.setLocalImageResource(card.getLocalImageResource());
+                super.setFooterResource(card.getFooterResource());
+                super.setmVideoUrl(card.getmVideoUrl());
+                super.setThumbnailsUrl(card.getThumbnailsUrl());
+                mDecoded = true;
+            }
+        }
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        ensureDecoded();
+        super.writeToParcel(dest, flags);
+    }
+
+    @Override
+    public String getmVideoUrl() {
+        ensureDecoded();
+        return super.getmVideoUrl();
+    }
+
+    @Override
+    public void setmVideoUrl(String videoUrl) {
+        ensureDecoded();
+        super.setmVideoUrl(videoUrl);
+    }
+
+    @Override
+    public boolean isLive() {
+        ensureDecoded();
+        return super.isLive();
+    }
+
+    @Override
+    public void setLive(boolean live) {
+        ensureDecoded();
+        super.setLive(live);
+    }
+
+    @Override
+    public String getThumbnailsUrl() {
+        ensureDecoded();
+        return super.getThumbnailsUrl();
+    }
+
+    @Override
+    public void setThumbnailsUrl(String thumbnailsUrl) {
+        ensureDecoded();
+        super.setThumbnailsUrl(thumbnailsUrl);
+    }
+
+    @Override
+    public String getTitle() {
+        ensureDecoded();
+        return super.getTitle();
+    }
+
+    @Override
+    public void setTitle(String title) {
+        ensureDecoded();
+        super.setTitle(title);
+    }
+
+    @Override
+    public String getLocalImageResource() {
+        ensureDecoded();
+        return super.getLocalImageResource();
+    }
+
+    @Override
+    public void setLocalImageResource(String localImageResource) {
+        ensureDecoded();
+        super.setLocalImageResource(localImageResource);
+    }
+
+    @Override
+    public String getFooterResource() {
+        ensureDecoded();
+        return super.getFooterResource();
+    }
+
+    @Override
+    public void setFooterResource(String footerResource) {
+        ensureDecoded();
+        super.setFooterResource(footerResource);
+    }
+
+    @Override
+    public Type getType() {
+        ensureDecoded();
+        return super.getType();
+    }
+
+    @Override
+    public void setType(Type type) {
+        ensureDecoded();
+        super.setType(type);
+    }
+
+    @Override
+    public void setId(int id) {
+        ensureDecoded();
+        super.setId(id);
+    }
+
+    @Override
+    public int getWidth() {
+        ensureDecoded();
+        return super.getWidth();
+    }
+
+    @Override
+    public void setWidth(int width) {
+        ensureDecoded();
+        super.setWidth(width);
+    }
+
+    @Override
+    public int getHeight() {
+        ensureDecoded();
+        return super.getHeight();
+    }
+
+    @Override
+    public void setHeight(int height) {
+        ensureDecoded();
+        super.setHeight(height);
+    }
+
+    @Override
+    public String getDescription() {
+        ensureDecoded();
+        return super.getDescription();
+    }
+
+    @Override
+    public void setDescription(String description) {
+        ensureDecoded();
+        super.setDescription(description);
+    }
+
+    @Override
+    public String getExtraText() {
+        ensureDecoded();
+        return super.getExtraText();
+    }
+
+    @Override
+    public void setExtraText(String extraText) {
+        ensureDecoded();
+        super.setExtraText(extraText);
+    }
+
+    @Override
+    public int getFooterColor() {
+        ensureDecoded();
+        return super.getFooterColor();
+    }
+
+    @Override
+    public String getFooterColorString() {
+        ensureDecoded();
+        return super.getFooterColorString();
+    }
+
+    @Override
+    public void setFooterColor(String footerColor) {
+        ensureDecoded();
+        super.setFooterColor(footerColor);
+    }
+
+    @Override
+    public int getSelectedColor() {
+        ensureDecoded();
+        return super.getSelectedColor();
+    }
+
+    @Override
+    public String getSelectedColorString() {
+        ensureDecoded();
+        return super.getSelectedColorString();
+    }
+
+    @Override
+    public void setSelectedColor(String selectedColor) {
+        ensureDecoded();
+        super.setSelectedColor(selectedColor);
+    }
+
+    @Override
+    public String getImageUrl() {
+        ensureDecoded();
+        return super.getImageUrl();
+    }
+
+    @Override
+    public void setImageUrl(String imageUrl) {
+        ensureDecoded();
+        super.setImageUrl(imageUrl);
+    }
+
+    @Override
+    public String getLocalImageResourceName() {
+        ensureDecoded();
+        return super.getLocalImageResourceName();
+    }
+
+    @Override
+    public String getFooterLocalImageResourceName() {
+        ensureDecoded();
+        return super.getFooterLocalImageResourceName();
+    }
+}
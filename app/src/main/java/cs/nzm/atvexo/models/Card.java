@@ -61,8 +61,13 @@ public class Card implements Parcelable {
     private String mVideoUrl;
     @SerializedName("isLive")
     private boolean isLive;
+    @SerializedName("thumbnails")
+    private String mThumbnailsUrl;
 
 
+    public Card() {
+    }
+
     protected Card(Parcel in) {
         mTitle = in.readString();
         mDescription = in.readString();
@@ -77,6 +82,7 @@ public class Card implements Parcelable {
         mHeight = in.readInt();
         mVideoUrl = in.readString();
         isLive = in.readByte() != 0;
+        mThumbnailsUrl = in.readString();
     }
 
     @Override
@@ -94,6 +100,7 @@ public class Card implements Parcelable {
         dest.writeInt(mHeight);
         dest.writeString(mVideoUrl);
         dest.writeByte((byte) (isLive ? 1 : 0));
+        dest.writeString(mThumbnailsUrl);
     }
 
     @Override
@@ -129,6 +136,18 @@ public class Card implements Parcelable {
         isLive = live;
     }
 
+    /**
+     * @return The URL of a WebVTT sprite-sheet thumbnail track for the video, or
+     * <code>null</code> if there is none.
+     */
+    public String getThumbnailsUrl() {
+        return mThumbnailsUrl;
+    }
+
+    public void setThumbnailsUrl(String thumbnailsUrl) {
+        mThumbnailsUrl = thumbnailsUrl;
+    }
+
 
     public String getTitle() {
         return mTitle;
@@ -208,6 +227,13 @@ public class Card implements Parcelable {
         return Color.parseColor(mFooterColor);
     }
 
+    /**
+     * @return The footer color as declared in the catalog, or <code>null</code> if there is none.
+     */
+    public String getFooterColorString() {
+        return mFooterColor;
+    }
+
     public void setFooterColor(String footerColor) {
         mFooterColor = footerColor;
     }
@@ -217,6 +243,14 @@ public class Card implements Parcelable {
         return Color.parseColor(mSelectedColor);
     }
 
+    /**
+     * @return The selected color as declared in the catalog, or <code>null</code> if there is
+     * none.
+     */
+    public String getSelectedColorString() {
+        return mSelectedColor;
+    }
+
     public String getImageUrl() {
         return mImageUrl;
     }
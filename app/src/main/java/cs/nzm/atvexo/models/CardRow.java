@@ -53,4 +53,20 @@ public class CardRow {
         return mCards;
     }
 
+    public void setType(int type) {
+        mType = type;
+    }
+
+    public void setTitle(String title) {
+        mTitle = title;
+    }
+
+    public void setShadow(boolean shadow) {
+        mShadow = shadow;
+    }
+
+    public void setCards(List<Card> cards) {
+        mCards = cards;
+    }
+
 }
@@ -32,6 +32,7 @@ public class MediaMetaData implements Parcelable{
     private int mMediaAlbumArtResId;
     private String mMediaAlbumArtUrl;
     private boolean isLive;
+    private String mThumbnailsUrl;
 
     public MediaMetaData(Uri mediaSourceUri, String mediaSourcePath, String mediaTitle,
                   String mediaArtistName, String mediaAlbumName, int mediaAlbumArtResId,
@@ -59,6 +60,7 @@ public class MediaMetaData implements Parcelable{
         mMediaAlbumArtResId = in.readInt();
         mMediaAlbumArtUrl = in.readString();
         isLive = in.readByte() != 0;
+        mThumbnailsUrl = in.readString();
     }
 
     @Override
@@ -71,6 +73,7 @@ public class MediaMetaData implements Parcelable{
         dest.writeInt(mMediaAlbumArtResId);
         dest.writeString(mMediaAlbumArtUrl);
         dest.writeByte((byte) (isLive ? 1 : 0));
+        dest.writeString(mThumbnailsUrl);
     }
 
     @Override
@@ -98,6 +101,14 @@ public class MediaMetaData implements Parcelable{
         isLive = live;
     }
 
+    public String getThumbnailsUrl() {
+        return mThumbnailsUrl;
+    }
+
+    public void setThumbnailsUrl(String thumbnailsUrl) {
+        mThumbnailsUrl = thumbnailsUrl;
+    }
+
     public Uri getMediaSourceUri() {
         return mMediaSourceUri;
     }
@@ -0,0 +1,186 @@
+package cs.nzm.atvexo.player;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+
+/**
+ * Describes how much media the player buffers ahead of and behind the playback position. Use one
+ * of the presets, or a {@link Builder} to tune a profile for a specific device class, and apply it
+ * with {@link ExoPlayerAdapter#setBufferProfile(BufferProfile)}.
+ */
+public final class BufferProfile {
+
+    /**
+     * Keeps the buffer short so playback stays close to the live edge.
+     */
+    public static final BufferProfile LIVE = new Builder()
+            .setBufferDurationsMs(4_000, 12_000, 1_000, 2_000)
+            .setBackBufferMs(0)
+            .setTargetBufferBytes(16 * 1024 * 1024)
+            .setPrioritizeTimeOverSizeThresholds(true)
+            .build();
+
+    /**
+     * Buffers deeply so on-demand playback survives long network dips.
+     */
+    public static final BufferProfile VOD = new Builder()
+            .setBufferDurationsMs(30_000, 120_000, 2_500, 5_000)
+            .setBackBufferMs(30_000)
+            .setTargetBufferBytes(64 * 1024 * 1024)
+            .setPrioritizeTimeOverSizeThresholds(false)
+            .build();
+
+    /**
+     * Caps the buffer in bytes for devices that run out of memory with the defaults.
+     */
+    public static final BufferProfile LOW_RAM = new Builder()
+            .setBufferDurationsMs(15_000, 30_000, 2_500, 5_000)
+            .setBackBufferMs(0)
+            .setTargetBufferBytes(8 * 1024 * 1024)
+            .setPrioritizeTimeOverSizeThresholds(false)
+            .build();
+
+    /**
+     * Live buffering for low-RAM devices: the short buffer of {@link #LIVE}, with a byte cap that
+     * takes precedence over the buffer durations.
+     */
+    public static final BufferProfile LOW_RAM_LIVE = LIVE.buildUpon()
+            .setTargetBufferBytes(4 * 1024 * 1024)
+            .setPrioritizeTimeOverSizeThresholds(false)
+            .build();
+
+    public final int minBufferMs;
+    public final int maxBufferMs;
+    public final int bufferForPlaybackMs;
+    public final int bufferForPlaybackAfterRebufferMs;
+    public final int backBufferMs;
+    public final boolean retainBackBufferFromKeyframe;
+    /**
+     * Byte budget of the buffer, or {@link C#LENGTH_UNSET} to derive it from the selected tracks.
+     */
+    public final int targetBufferBytes;
+    public final boolean prioritizeTimeOverSizeThresholds;
+
+    private BufferProfile(Builder builder) {
+        minBufferMs = builder.mMinBufferMs;
+        maxBufferMs = builder.mMaxBufferMs;
+        bufferForPlaybackMs = builder.mBufferForPlaybackMs;
+        bufferForPlaybackAfterRebufferMs = builder.mBufferForPlaybackAfterRebufferMs;
+        backBufferMs = builder.mBackBufferMs;
+        retainBackBufferFromKeyframe = builder.mRetainBackBufferFromKeyframe;
+        targetBufferBytes = builder.mTargetBufferBytes;
+        prioritizeTimeOverSizeThresholds = builder.mPrioritizeTimeOverSizeThresholds;
+    }
+
+    /**
+     * Picks the preset for the given kind of content on this device: {@link #LIVE} or
+     * {@link #VOD}, or {@link #LOW_RAM_LIVE} or {@link #LOW_RAM} on low-RAM devices.
+     */
+    public static BufferProfile forContent(Context context, boolean live) {
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager.isLowRamDevice()) {
+            return live ? LOW_RAM_LIVE : LOW_RAM;
+        }
+        return live ? LIVE : VOD;
+    }
+
+    public Builder buildUpon() {
+        return new Builder()
+                .setBufferDurationsMs(minBufferMs, maxBufferMs, bufferForPlaybackMs,
+                        bufferForPlaybackAfterRebufferMs)
+                .setBackBufferMs(backBufferMs)
+                .setRetainBackBufferFromKeyframe(retainBackBufferFromKeyframe)
+                .setTargetBufferBytes(targetBufferBytes)
+                .setPrioritizeTimeOverSizeThresholds(prioritizeTimeOverSizeThresholds);
+    }
+
+    /**
+     * Builds a {@link DefaultLoadControl} for this profile on top of the given allocator.
+     */
+    DefaultLoadControl createLoadControl(DefaultAllocator allocator) {
+        return new DefaultLoadControl.Builder()
+                .setAllocator(allocator)
+                .setBufferDurationsMs(minBufferMs, maxBufferMs, bufferForPlaybackMs,
+                        bufferForPlaybackAfterRebufferMs)
+                .setBackBuffer(backBufferMs, retainBackBufferFromKeyframe)
+                .setTargetBufferBytes(targetBufferBytes)
+                .setPrioritizeTimeOverSizeThresholds(prioritizeTimeOverSizeThresholds)
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return "BufferProfile{min=" + minBufferMs + ", max=" + maxBufferMs
+                + ", playback=" + bufferForPlaybackMs
+                + ", rebuffer=" + bufferForPlaybackAfterRebufferMs
+                + ", back=" + backBufferMs + ", bytes=" + targetBufferBytes + "}";
+    }
+
+    /**
+     * Builds {@link BufferProfile} instances. Defaults match ExoPlayer's default buffering.
+     */
+    public static final class Builder {
+        private int mMinBufferMs = DefaultLoadControl.DEFAULT_MIN_BUFFER_MS;
+        private int mMaxBufferMs = DefaultLoadControl.DEFAULT_MAX_BUFFER_MS;
+        private int mBufferForPlaybackMs = DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_MS;
+        private int mBufferForPlaybackAfterRebufferMs =
+                DefaultLoadControl.DEFAULT_BUFFER_FOR_PLAYBACK_AFTER_REBUFFER_MS;
+        private int mBackBufferMs = DefaultLoadControl.DEFAULT_BACK_BUFFER_DURATION_MS;
+        private boolean mRetainBackBufferFromKeyframe =
+                DefaultLoadControl.DEFAULT_RETAIN_BACK_BUFFER_FROM_KEYFRAME;
+        private int mTargetBufferBytes = DefaultLoadControl.DEFAULT_TARGET_BUFFER_BYTES;
+        private boolean mPrioritizeTimeOverSizeThresholds =
+                DefaultLoadControl.DEFAULT_PRIORITIZE_TIME_OVER_SIZE_THRESHOLDS;
+
+        /**
+         * @see DefaultLoadControl.Builder#setBufferDurationsMs(int, int, int, int)
+         */
+        public Builder setBufferDurationsMs(int minBufferMs, int maxBufferMs,
+                                            int bufferForPlaybackMs,
+                                            int bufferForPlaybackAfterRebufferMs) {
+            if (bufferForPlaybackMs > minBufferMs || bufferForPlaybackAfterRebufferMs > minBufferMs
+                    || minBufferMs > maxBufferMs) {
+                throw new IllegalArgumentException("Inconsistent buffer durations");
+            }
+            mMinBufferMs = minBufferMs;
+            mMaxBufferMs = maxBufferMs;
+            mBufferForPlaybackMs = bufferForPlaybackMs;
+            mBufferForPlaybackAfterRebufferMs = bufferForPlaybackAfterRebufferMs;
+            return this;
+        }
+
+        public Builder setBackBufferMs(int backBufferMs) {
+            mBackBufferMs = backBufferMs;
+            return this;
+        }
+
+        public Builder setRetainBackBufferFromKeyframe(boolean retainBackBufferFromKeyframe) {
+            mRetainBackBufferFromKeyframe = retainBackBufferFromKeyframe;
+            return this;
+        }
+
+        /**
+         * @param targetBufferBytes Byte budget of the buffer, or {@link C#LENGTH_UNSET} to derive
+         *                          it from the selected tracks.
+         */
+        public Builder setTargetBufferBytes(int targetBufferBytes) {
+            mTargetBufferBytes = targetBufferBytes;
+            return this;
+        }
+
+        public Builder setPrioritizeTimeOverSizeThresholds(
+                boolean prioritizeTimeOverSizeThresholds) {
+            mPrioritizeTimeOverSizeThresholds = prioritizeTimeOverSizeThresholds;
+            return this;
+        }
+
+        public BufferProfile build() {
+            return new BufferProfile(this);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package cs.nzm.atvexo.player;
+
+import android.media.MediaDataSource;
+import android.net.Uri;
+
+import androidx.annotation.RequiresApi;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+
+import java.io.IOException;
+
+/**
+ * Exposes an ExoPlayer {@link DataSource} as a platform {@link MediaDataSource}, so that
+ * {@link android.media.MediaMetadataRetriever} reads the same cached bytes as the player. The
+ * underlying source is reopened whenever a read doesn't continue where the previous one stopped.
+ */
+@RequiresApi(23)
+public final class DataSourceMediaDataSource extends MediaDataSource {
+
+    private final DataSource mDataSource;
+    private final Uri mUri;
+    private long mSize = C.LENGTH_UNSET;
+    private long mPosition = C.POSITION_UNSET;
+    private boolean mEndOfInput;
+
+    public DataSourceMediaDataSource(DataSource.Factory factory, Uri uri) {
+        mDataSource = factory.createDataSource();
+        mUri = uri;
+    }
+
+    @Override
+    public synchronized int readAt(long position, byte[] buffer, int offset, int size)
+            throws IOException {
+        if (size == 0) {
+            return 0;
+        }
+        if (mSize != C.LENGTH_UNSET && position >= mSize) {
+            return -1;
+        }
+        if (position != mPosition) {
+            openAt(position);
+        }
+        if (mEndOfInput) {
+            return -1;
+        }
+        int read = mDataSource.read(buffer, offset, size);
+        if (read == C.RESULT_END_OF_INPUT) {
+            mEndOfInput = true;
+            return -1;
+        }
+        mPosition += read;
+        return read;
+    }
+
+    @Override
+    public synchronized long getSize() throws IOException {
+        if (mSize == C.LENGTH_UNSET && mPosition == C.POSITION_UNSET) {
+            openAt(0);
+        }
+        return mSize == C.LENGTH_UNSET ? -1 : mSize;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mPosition = C.POSITION_UNSET;
+        mDataSource.close();
+    }
+
+    private void openAt(long position) throws IOException {
+        mDataSource.close();
+        mEndOfInput = false;
+        long length = mDataSource.open(new DataSpec.Builder()
+                .setUri(mUri)
+                .setPosition(position)
+                .build());
+        if (length != C.LENGTH_UNSET) {
+            mSize = position + length;
+        }
+        mPosition = position;
+    }
+}
@@ -0,0 +1,111 @@
+package cs.nzm.atvexo.player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders the decoders that can play a format, best first, for a {@link RendererPolicy}. The
+ * renderer initializes the first one and falls back along the order when that fails.
+ *
+ * <p>With hardware decoders preferred, hardware-accelerated decoders come first, then decoders
+ * that are neither reported as hardware-accelerated nor as software-only, then software-only
+ * ones; vendor decoders go before others of the same rank. Excluded decoders go last rather than
+ * being dropped, so a format never ends up without decoders. Decoders that rank the same keep
+ * the order of the platform.
+ *
+ * <p>Only uses plain Java, so it runs on any JVM with made-up decoder lists.
+ */
+public final class DecoderRanker {
+
+    /**
+     * What the ranking needs to know about a decoder.
+     */
+    public static final class Decoder {
+        public final String name;
+        public final boolean hardwareAccelerated;
+        public final boolean softwareOnly;
+        public final boolean vendor;
+
+        public Decoder(String name, boolean hardwareAccelerated, boolean softwareOnly,
+                       boolean vendor) {
+            this.name = name;
+            this.hardwareAccelerated = hardwareAccelerated;
+            this.softwareOnly = softwareOnly;
+            this.vendor = vendor;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private final boolean mPreferHardware;
+    private final List<String> mExcludedNamePrefixes;
+
+    /**
+     * @param preferHardware Whether to move hardware decoders ahead of software ones. Otherwise
+     *                       only exclusions change the order of the platform.
+     * @param excludedNamePrefixes Prefixes of the names of decoders to try last.
+     */
+    public DecoderRanker(boolean preferHardware, List<String> excludedNamePrefixes) {
+        mPreferHardware = preferHardware;
+        mExcludedNamePrefixes = new ArrayList<>(excludedNamePrefixes);
+    }
+
+    /**
+     * @return The positions in the given list of its decoders, best first.
+     */
+    public int[] rank(final List<Decoder> decoders) {
+        final int[] scores = new int[decoders.size()];
+        List<Integer> positions = new ArrayList<>(decoders.size());
+        for (int i = 0; i < decoders.size(); i++) {
+            scores[i] = score(decoders.get(i));
+            positions.add(i);
+        }
+        // Stable, so equal scores keep the order of the platform.
+        Collections.sort(positions, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Integer.compare(scores[a], scores[b]);
+            }
+        });
+        int[] order = new int[positions.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = positions.get(i);
+        }
+        return order;
+    }
+
+    /**
+     * Returns the rank of a decoder, lower being better.
+     */
+    private int score(Decoder decoder) {
+        int score = 0;
+        if (isExcluded(decoder.name)) {
+            score += 8;
+        }
+        if (mPreferHardware) {
+            if (decoder.softwareOnly) {
+                score += 4;
+            } else if (!decoder.hardwareAccelerated) {
+                score += 2;
+            }
+            if (!decoder.vendor) {
+                score += 1;
+            }
+        }
+        return score;
+    }
+
+    private boolean isExcluded(String name) {
+        for (String prefix : mExcludedNamePrefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -21,65 +21,142 @@ import android.app.Dialog;
 import android.content.Context;
 import android.net.Uri;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.view.SurfaceHolder;
+import android.view.SurfaceView;
 import android.view.View;
 
+import androidx.annotation.Nullable;
 import androidx.leanback.media.PlaybackGlueHost;
 import androidx.leanback.media.PlayerAdapter;
 import androidx.leanback.media.SurfaceHolderGlueHost;
 
 import com.google.android.exoplayer2.C;
-import com.google.android.exoplayer2.DefaultRenderersFactory;
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.MediaItem;
 import com.google.android.exoplayer2.Player;
 import com.google.android.exoplayer2.SimpleExoPlayer;
+import com.google.android.exoplayer2.Timeline;
 import com.google.android.exoplayer2.source.DefaultMediaSourceFactory;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.text.CueGroup;
 import com.google.android.exoplayer2.ui.SubtitleView;
 import com.google.android.exoplayer2.ui.TrackSelectionDialogBuilder;
-import com.google.android.exoplayer2.util.Util;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import cs.nzm.atvexo.models.MediaMetaData;
 
 /**
  * This implementation extends the {@link PlayerAdapter} with a {@link SimpleExoPlayer}.
  */
 public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
 
+    /**
+     * Receives the changes of the current item of a queue set with
+     * {@link #setQueue(List, int)}.
+     */
+    public interface QueueListener {
+        /**
+         * Called when playback moved to another item of the queue, either because the previous
+         * one ended or because of {@link #next()}, {@link #previous()} or a seek.
+         */
+        void onQueueItemChanged(int index, MediaMetaData item);
+    }
+
+    static final int SCRUBBING_UPDATE_PERIOD_MS = 16;
+    static final int CONTROLS_VISIBLE_UPDATE_PERIOD_MS = 250;
+    static final int CONTROLS_HIDDEN_UPDATE_PERIOD_MS = 1000;
+    static final int SCRUBBING_TIMEOUT_MS = 500;
+    public static final long DEFAULT_LIVE_RESYNC_THRESHOLD_MS = 30_000;
+
+    /**
+     * Live configuration for any live stream: corrects drift by playing up to 5% faster or 3%
+     * slower, which is barely audible. The target offset is left to the stream, which for HLS is
+     * its <code>HOLD-BACK</code>, three target durations by default.
+     */
+    public static final MediaItem.LiveConfiguration DEFAULT_LIVE_CONFIGURATION =
+            new MediaItem.LiveConfiguration.Builder()
+                    .setMinPlaybackSpeed(0.97f)
+                    .setMaxPlaybackSpeed(1.05f)
+                    .build();
+
+    /**
+     * Live configuration for streams known to be low-latency: stays 5s behind the live edge,
+     * within the speed bounds of {@link #DEFAULT_LIVE_CONFIGURATION}. On streams with ordinary
+     * segment durations, this puts the player inside the last segment and makes it rebuffer.
+     */
+    public static final MediaItem.LiveConfiguration LOW_LATENCY_LIVE_CONFIGURATION =
+            new MediaItem.LiveConfiguration.Builder()
+                    .setTargetOffsetMs(5_000)
+                    .setMinOffsetMs(3_000)
+                    .setMaxOffsetMs(20_000)
+                    .setMinPlaybackSpeed(0.97f)
+                    .setMaxPlaybackSpeed(1.05f)
+                    .build();
+
     Context mContext;
     final ExoPlayer mPlayer;
     SubtitleView subtitleView;
     SurfaceHolderGlueHost mSurfaceHolderGlueHost;
+    PlaybackGlueHost mHost;
     final Runnable mRunnable = new Runnable() {
         @Override
         public void run() {
-            getCallback().onCurrentPositionChanged(ExoPlayerAdapter.this);
-            getCallback().onBufferedPositionChanged(ExoPlayerAdapter.this);
-            mHandler.postDelayed(this, getUpdatePeriod());
+            publishProgress();
+            int updatePeriod = getUpdatePeriod();
+            if (updatePeriod > 0) {
+                mHandler.postDelayed(this, updatePeriod);
+            }
         }
     };
     final Handler mHandler = new Handler();
+    boolean mProgressUpdatingEnabled;
+    boolean mScrubbing;
+    long mScrubbingUntilMs;
+    long mPublishedPosition = C.TIME_UNSET;
+    long mPublishedBufferedPosition = C.TIME_UNSET;
     boolean mInitialized = false;
     Uri mMediaSourceUri = null;
     boolean mHasDisplay;
     boolean mBufferingStart;
+    boolean mReleased;
     @C.StreamType int mAudioStreamType;
+    @Nullable MediaItem.LiveConfiguration mLiveConfiguration;
+    final LiveEdgeTracker mLiveEdgeTracker;
+    @Nullable LiveEdgeTracker.Listener mLiveEdgeListener;
+    final PlaybackMetrics mMetrics = new PlaybackMetrics(new LogcatMetricsSink());
+    final VideoSurfaceManager mSurfaceManager;
+    @Nullable SurfaceView mSurfaceView;
+    final List<MediaMetaData> mQueue = new ArrayList<>();
+    @Nullable QueueListener mQueueListener;
 
     /**
-     * Constructor.
+     * Constructor. The {@link ExoPlayer} is leased from the {@link ExoPlayerPool} and handed
+     * back to it in {@link #release()}.
      */
     public ExoPlayerAdapter(Context context) {
         mContext = context;
-        mPlayer = new ExoPlayer.Builder(mContext,
-                new DefaultRenderersFactory(mContext),
-                new DefaultMediaSourceFactory(mContext)
-        ).build();
+        mPlayer = ExoPlayerPool.getInstance(mContext).acquire();
         mPlayer.addListener(this);
+        mPlayer.addAnalyticsListener(mMetrics);
+        mSurfaceManager = new VideoSurfaceManager(mPlayer, mMetrics);
+        mLiveEdgeTracker = new LiveEdgeTracker(mPlayer, DEFAULT_LIVE_RESYNC_THRESHOLD_MS);
+        mLiveEdgeTracker.setListener(new LiveEdgeTracker.Listener() {
+            @Override
+            public void onLiveEdgeDistanceSampled(long distanceMs, float playbackSpeed) {
+                mMetrics.onLiveEdgeDistanceSampled(distanceMs, playbackSpeed);
+                if (mLiveEdgeListener != null) {
+                    mLiveEdgeListener.onLiveEdgeDistanceSampled(distanceMs, playbackSpeed);
+                }
+            }
+        });
     }
 
     @Override
     public void onAttachedToHost(PlaybackGlueHost host) {
+        mHost = host;
         if (host instanceof SurfaceHolderGlueHost) {
             mSurfaceHolderGlueHost = ((SurfaceHolderGlueHost) host);
             mSurfaceHolderGlueHost.setSurfaceHolderCallback(new VideoPlayerSurfaceHolderCallback());
@@ -93,6 +170,11 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
      */
     public void reset() {
         changeToUninitialized();
+        mLiveEdgeTracker.reset();
+        mMetrics.endSession();
+        if (mReleased) {
+            return;
+        }
         mPlayer.stop();
     }
 
@@ -116,12 +198,24 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
     }
 
     /**
-     * Release internal {@link SimpleExoPlayer}. Should not use the object after call release().
+     * Returns the internal {@link ExoPlayer} to the {@link ExoPlayerPool}, which may hand it to
+     * another adapter right away. Calls made afterwards, for example by a glue that still holds
+     * this adapter, no longer reach the player.
      */
     public void release() {
+        if (mReleased) {
+            return;
+        }
+        mReleased = true;
+        mHandler.removeCallbacks(mRunnable);
+        mLiveEdgeTracker.reset();
+        mMetrics.endSession();
         changeToUninitialized();
         mHasDisplay = false;
-        mPlayer.release();
+        mSurfaceManager.release();
+        mPlayer.removeListener(this);
+        mPlayer.removeAnalyticsListener(mMetrics);
+        ExoPlayerPool.getInstance(mContext).release(mPlayer);
     }
 
     @Override
@@ -130,21 +224,41 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
             mSurfaceHolderGlueHost.setSurfaceHolderCallback(null);
             mSurfaceHolderGlueHost = null;
         }
+        mHost = null;
         reset();
         release();
     }
 
     /**
-     * @see SimpleExoPlayer#setVideoSurfaceHolder(SurfaceHolder)
+     * Sets the view whose surface the host provides, so the video can be moved to a new surface
+     * of the view without switching the output of the decoder. See {@link VideoSurfaceManager}.
+     */
+    public void setSurfaceView(@Nullable SurfaceView surfaceView) {
+        mSurfaceView = surfaceView;
+    }
+
+    /**
+     * Shows the video on the surface of the given holder, or stops showing it.
+     *
+     * @see VideoSurfaceManager
      */
     void setDisplay(SurfaceHolder surfaceHolder) {
+        if (mReleased) {
+            return;
+        }
         boolean hadDisplay = mHasDisplay;
         mHasDisplay = surfaceHolder != null;
         if (hadDisplay == mHasDisplay) {
             return;
         }
 
-        mPlayer.setVideoSurfaceHolder(surfaceHolder);
+        if (mHasDisplay) {
+            mSurfaceManager.attach(surfaceHolder,
+                    mSurfaceView != null && mSurfaceView.getHolder() == surfaceHolder
+                            ? mSurfaceView : null);
+        } else {
+            mSurfaceManager.detach();
+        }
         if (mHasDisplay) {
             if (mInitialized) {
                 getCallback().onPreparedStateChanged(ExoPlayerAdapter.this);
@@ -158,19 +272,87 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
 
     @Override
     public void setProgressUpdatingEnabled(final boolean enabled) {
+        mProgressUpdatingEnabled = enabled;
+        scheduleProgressUpdate();
+    }
+
+    /**
+     * Tells the adapter whether the user is scrubbing through the media, in which case progress
+     * is published at frame rate. Seeks issued through the adapter count as scrubbing for
+     * {@link #SCRUBBING_TIMEOUT_MS} on their own.
+     */
+    public void setScrubbing(boolean scrubbing) {
+        mScrubbing = scrubbing;
+        scheduleProgressUpdate();
+    }
+
+    /**
+     * Tells the adapter that the controls overlay was shown or hidden, which changes how often
+     * progress is published while playing.
+     */
+    public void onControlsOverlayVisibilityChanged() {
+        scheduleProgressUpdate();
+    }
+
+    /**
+     * Restarts the progress updates, with a period that fits the new state. Called whenever
+     * something that {@link #getUpdatePeriod()} depends on changes.
+     */
+    void scheduleProgressUpdate() {
         mHandler.removeCallbacks(mRunnable);
-        if (!enabled) {
-            return;
+        if (mProgressUpdatingEnabled && !mReleased) {
+            mHandler.post(mRunnable);
+        }
+    }
+
+    /**
+     * Notifies the callback of position changes. Values that didn't change since the last
+     * notification are not published again.
+     */
+    void publishProgress() {
+        long position = getCurrentPosition();
+        if (position != mPublishedPosition) {
+            mPublishedPosition = position;
+            getCallback().onCurrentPositionChanged(ExoPlayerAdapter.this);
+        }
+        long bufferedPosition = getBufferedPosition();
+        if (bufferedPosition != mPublishedBufferedPosition) {
+            mPublishedBufferedPosition = bufferedPosition;
+            getCallback().onBufferedPositionChanged(ExoPlayerAdapter.this);
         }
-        mHandler.postDelayed(mRunnable, getUpdatePeriod());
     }
 
+    /**
+     * @return The delay until the next progress update in milliseconds, or 0 if nothing will
+     * change until the playback state does.
+     */
     int getUpdatePeriod() {
-        return 16;
+        if (!mInitialized) {
+            return 0;
+        }
+        if (mScrubbing || SystemClock.uptimeMillis() < mScrubbingUntilMs) {
+            return SCRUBBING_UPDATE_PERIOD_MS;
+        }
+        if (isPlaying()) {
+            return mHost != null && mHost.isControlsOverlayVisible()
+                    ? CONTROLS_VISIBLE_UPDATE_PERIOD_MS : CONTROLS_HIDDEN_UPDATE_PERIOD_MS;
+        }
+        if (mPlayer.isLoading()) {
+            return CONTROLS_HIDDEN_UPDATE_PERIOD_MS;
+        }
+        return 0;
+    }
+
+    private void onSeekIssued() {
+        mScrubbingUntilMs = SystemClock.uptimeMillis() + SCRUBBING_TIMEOUT_MS;
+        scheduleProgressUpdate();
     }
 
     @Override
     public boolean isPlaying() {
+        if (mReleased) {
+            return false;
+        }
         boolean exoPlayerIsPlaying = mPlayer.getPlaybackState() == ExoPlayer.STATE_READY
                 && mPlayer.getPlayWhenReady();
         return mInitialized && exoPlayerIsPlaying;
@@ -178,18 +360,18 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
 
     @Override
     public long getDuration() {
-        return mInitialized ? mPlayer.getDuration() : -1;
+        return mInitialized && !mReleased ? mPlayer.getDuration() : -1;
     }
 
     @Override
     public long getCurrentPosition() {
-        return mInitialized ? mPlayer.getCurrentPosition() : -1;
+        return mInitialized && !mReleased ? mPlayer.getCurrentPosition() : -1;
     }
 
 
     @Override
     public void play() {
-        if (!mInitialized || isPlaying()) {
+        if (!mInitialized || mReleased || isPlaying()) {
             return;
         }
 
@@ -208,31 +390,34 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
 
     @Override
     public void seekTo(long newPosition) {
-        if (!mInitialized) {
+        if (!mInitialized || mReleased) {
             return;
         }
         mPlayer.seekTo(newPosition);
+        onSeekIssued();
     }
 
     @Override
     public void fastForward() {
-        if (!mInitialized) {
+        if (!mInitialized || mReleased) {
             return;
         }
         mPlayer.seekTo(getCurrentPosition() + 10_000);
+        onSeekIssued();
     }
 
     @Override
     public void rewind() {
-        if (!mInitialized) {
+        if (!mInitialized || mReleased) {
             return;
         }
         mPlayer.seekTo(getCurrentPosition() - 10_000);
+        onSeekIssued();
     }
 
     @Override
     public long getBufferedPosition() {
-        return mPlayer.getBufferedPosition();
+        return mReleased ? -1 : mPlayer.getBufferedPosition();
     }
 
     public Context getContext() {
@@ -247,14 +432,178 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
      * @see ExoPlayer#prepare(MediaSource)
      */
     public boolean setDataSource(Uri uri) {
+        if (mReleased) {
+            return false;
+        }
         if (mMediaSourceUri != null ? mMediaSourceUri.equals(uri) : uri == null) {
             return false;
         }
         mMediaSourceUri = uri;
+        mQueue.clear();
         prepareMediaForPlaying();
         return true;
     }
 
+    /**
+     * Plays a queue of media, starting with the item at the given index, as one playlist of the
+     * player. The player buffers the next item while the current one ends, so it starts without
+     * rebuffering and without resetting the player. Live items get the live configuration set
+     * with {@link #setLiveConfiguration(MediaItem.LiveConfiguration)}.
+     */
+    public void setQueue(List<MediaMetaData> items, int startIndex) {
+        if (mReleased) {
+            return;
+        }
+        reset();
+        mQueue.clear();
+        mQueue.addAll(items);
+        if (mQueue.isEmpty()) {
+            mMediaSourceUri = null;
+            return;
+        }
+        List<MediaSource> mediaSources = new ArrayList<>(mQueue.size());
+        for (MediaMetaData item : mQueue) {
+            mediaSources.add(onCreateMediaSource(buildMediaItem(
+                    Uri.parse(item.getMediaSourcePath()),
+                    item.isLive() ? mLiveConfiguration : null)));
+        }
+        mMediaSourceUri = Uri.parse(mQueue.get(startIndex).getMediaSourcePath());
+        mMetrics.startSession(mMediaSourceUri.toString());
+        mPlayer.setMediaSources(mediaSources, startIndex, C.TIME_UNSET);
+        mPlayer.prepare();
+        notifyBufferingStartEnd();
+        getCallback().onPlayStateChanged(ExoPlayerAdapter.this);
+    }
+
+    /**
+     * Returns the items of the queue set with {@link #setQueue(List, int)}, or an empty list.
+     */
+    public List<MediaMetaData> getQueue() {
+        return mQueue;
+    }
+
+    /**
+     * @return The index of the current item in the queue, or -1 if no queue is set.
+     */
+    public int getQueueIndex() {
+        return mQueue.isEmpty() || mReleased ? -1 : mPlayer.getCurrentMediaItemIndex();
+    }
+
+    public void setQueueListener(@Nullable QueueListener listener) {
+        mQueueListener = listener;
+    }
+
+    /**
+     * Sets whether playback continues with the next item of the queue when an item ends, the
+     * default, or pauses at its end until {@link #play()} or {@link #next()}.
+     */
+    public void setAutoplayNext(boolean autoplayNext) {
+        if (mReleased) {
+            return;
+        }
+        mPlayer.setPauseAtEndOfMediaItems(!autoplayNext);
+    }
+
+    public boolean isAutoplayNext() {
+        return mReleased || !mPlayer.getPauseAtEndOfMediaItems();
+    }
+
+    @Override
+    public void next() {
+        if (mInitialized && !mReleased && mPlayer.hasNextMediaItem()) {
+            mPlayer.seekToNextMediaItem();
+        }
+    }
+
+    @Override
+    public void previous() {
+        if (mInitialized && !mReleased && mPlayer.hasPreviousMediaItem()) {
+            mPlayer.seekToPreviousMediaItem();
+        }
+    }
+
+    public BufferProfile getBufferProfile() {
+        ExoPlayerPool pool = ExoPlayerPool.getInstance(mContext);
+        return mReleased ? pool.getDefaultBufferProfile() : pool.getBufferProfile(mPlayer);
+    }
+
+    /**
+     * Sets how much media the player buffers, for example {@link BufferProfile#LIVE} for live
+     * streams. Can be changed at any time; the new profile applies to the current media.
+     */
+    public void setBufferProfile(BufferProfile profile) {
+        if (mReleased) {
+            return;
+        }
+        ExoPlayerPool.getInstance(mContext).setBufferProfile(mPlayer, profile);
+    }
+
+    /**
+     * Enables live playback mode for the media set afterwards with {@link #setDataSource(Uri)}.
+     * The player keeps the target offset behind the live edge by adjusting its playback speed
+     * within the given bounds, and jumps back to the edge when it falls further behind than
+     * {@link #setLiveResyncThresholdMs(long)}.
+     *
+     * @param liveConfiguration The live configuration, for example
+     *                          {@link #DEFAULT_LIVE_CONFIGURATION}, or <code>null</code> to
+     *                          use the defaults of the stream.
+     */
+    public void setLiveConfiguration(@Nullable MediaItem.LiveConfiguration liveConfiguration) {
+        mLiveConfiguration = liveConfiguration;
+    }
+
+    @Nullable
+    public MediaItem.LiveConfiguration getLiveConfiguration() {
+        return mLiveConfiguration;
+    }
+
+    /**
+     * @param thresholdMs Distance to the live edge beyond which the player seeks back to it, or
+     *                    {@link C#TIME_UNSET} to rely on playback-speed adjustment alone.
+     */
+    public void setLiveResyncThresholdMs(long thresholdMs) {
+        mLiveEdgeTracker.setResyncThresholdMs(thresholdMs);
+    }
+
+    /**
+     * @return How far playback is behind the live edge in milliseconds, or {@link C#TIME_UNSET}
+     * if the current media is not live.
+     */
+    public long getLiveEdgeDistanceMs() {
+        return mInitialized && !mReleased ? mPlayer.getCurrentLiveOffset() : C.TIME_UNSET;
+    }
+
+    /**
+     * Returns the tracker that samples the live-edge distance once per second while a live
+     * stream plays, along with its session statistics.
+     */
+    public LiveEdgeTracker getLiveEdgeTracker() {
+        return mLiveEdgeTracker;
+    }
+
+    /**
+     * Sets a listener that receives every live-edge distance sample.
+     */
+    public void setLiveEdgeListener(@Nullable LiveEdgeTracker.Listener listener) {
+        mLiveEdgeListener = listener;
+    }
+
+    /**
+     * Returns the quality-of-experience metrics of this adapter. A session starts with every
+     * {@link #setDataSource(Uri)} and ends when the media is reset or the adapter released.
+     */
+    public PlaybackMetrics getPlaybackMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Sets where finished playback sessions are reported. Defaults to a
+     * {@link LogcatMetricsSink}.
+     */
+    public void setMetricsSink(MetricsSink sink) {
+        mMetrics.setSink(sink);
+    }
+
     public int getAudioStreamType() {
         return mAudioStreamType;
     }
@@ -265,20 +614,39 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
 
     /**
      * Set {@link MediaSource} for {@link ExoPlayer}. An app may override this method in order
-     * to use different {@link MediaSource}.
+     * to use different {@link MediaSource}. The default implementation reads through
+     * {@link PlaybackDataSources}, so streams preloaded by the {@link StreamPreloader} start
+     * from memory.
      *
      * @param uri The url of media source
      * @return MediaSource for the player
      */
     public MediaSource onCreateMediaSource(Uri uri) {
-        String userAgent = Util.getUserAgent(mContext, "ExoPlayerAdapter");
-        MediaItem mediaItem = MediaItem.fromUri(mMediaSourceUri);
-        return new DefaultMediaSourceFactory(mContext).createMediaSource(mediaItem);
+        return onCreateMediaSource(buildMediaItem(uri, mLiveConfiguration));
+    }
+
+    /**
+     * Creates the {@link MediaSource} of an item, for {@link #onCreateMediaSource(Uri)} and for
+     * every item of a queue.
+     */
+    public MediaSource onCreateMediaSource(MediaItem mediaItem) {
+        return new DefaultMediaSourceFactory(PlaybackDataSources.getPlaybackFactory(mContext))
+                .createMediaSource(mediaItem);
+    }
+
+    private static MediaItem buildMediaItem(Uri uri,
+                                            @Nullable MediaItem.LiveConfiguration liveConfiguration) {
+        return new MediaItem.Builder()
+                .setUri(uri)
+                .setLiveConfiguration(liveConfiguration != null
+                        ? liveConfiguration : MediaItem.LiveConfiguration.UNSET)
+                .build();
     }
 
     private void prepareMediaForPlaying() {
         reset();
         if (mMediaSourceUri != null) {
+            mMetrics.startSession(mMediaSourceUri.toString());
             MediaSource mediaSource = onCreateMediaSource(mMediaSourceUri);
             mPlayer.setMediaSource(mediaSource);
             mPlayer.prepare();
@@ -299,6 +667,9 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
     }
 
     public void showTrackDialog() {
+        if (mReleased) {
+            return;
+        }
         Dialog track_selector = new TrackSelectionDialogBuilder(mContext, "Track Selector", mPlayer, TRACK_TYPE_VIDEO).build();
         track_selector.show();
     }
@@ -324,7 +695,9 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
         }
 
         @Override
-        public void surfaceChanged(SurfaceHolder surfaceHolder, int i, int i1, int i2) {
+        public void surfaceChanged(SurfaceHolder surfaceHolder, int format, int width,
+                                   int height) {
+            mSurfaceManager.onSurfaceSizeChanged(width, height);
         }
 
         @Override
@@ -341,6 +714,58 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
         }
     }
 
+    @Override
+    public void onRenderedFirstFrame() {
+        PlaybackTrace.endFirstFrame();
+    }
+
+    @Override
+    public void onMediaItemTransition(@Nullable MediaItem mediaItem, int reason) {
+        if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_PLAYLIST_CHANGED
+                || mediaItem == null || mediaItem.localConfiguration == null
+                || mQueue.isEmpty()) {
+            return;
+        }
+        // Every item of a queue is a session of its own, continuing from the previous one.
+        mLiveEdgeTracker.reset();
+        mMediaSourceUri = mediaItem.localConfiguration.uri;
+        mMetrics.startSession(mMediaSourceUri.toString(), mPlayer.isPlaying(),
+                reason != Player.MEDIA_ITEM_TRANSITION_REASON_SEEK);
+        if (mPlayer.isPlaying() && mPlayer.isCurrentMediaItemLive()) {
+            mLiveEdgeTracker.start();
+        }
+        int index = mPlayer.getCurrentMediaItemIndex();
+        if (mQueueListener != null && index < mQueue.size()) {
+            mQueueListener.onQueueItemChanged(index, mQueue.get(index));
+        }
+        if (mInitialized) {
+            getCallback().onDurationChanged(ExoPlayerAdapter.this);
+            getCallback().onMetadataChanged(ExoPlayerAdapter.this);
+        }
+    }
+
+    @Override
+    public void onTimelineChanged(Timeline timeline, int reason) {
+        if (mInitialized) {
+            getCallback().onDurationChanged(ExoPlayerAdapter.this);
+        }
+    }
+
+    @Override
+    public void onIsPlayingChanged(boolean isPlaying) {
+        if (isPlaying && mPlayer.isCurrentMediaItemLive()) {
+            mLiveEdgeTracker.start();
+        } else {
+            mLiveEdgeTracker.stop();
+        }
+        scheduleProgressUpdate();
+    }
+
+    @Override
+    public void onIsLoadingChanged(boolean isLoading) {
+        scheduleProgressUpdate();
+    }
+
     @Override
     public void onPlaybackStateChanged(int playbackState) {
         Player.Listener.super.onPlaybackStateChanged(playbackState);
@@ -357,5 +782,6 @@ public class ExoPlayerAdapter extends PlayerAdapter implements Player.Listener {
             getCallback().onPlayCompleted(ExoPlayerAdapter.this);
         }
         notifyBufferingStartEnd();
+        scheduleProgressUpdate();
     }
 }
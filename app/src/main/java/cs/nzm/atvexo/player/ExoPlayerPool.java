@@ -0,0 +1,294 @@
+package cs.nzm.atvexo.player;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.PlaybackParameters;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.source.DefaultMediaSourceFactory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+
+import cs.nzm.atvexo.R;
+
+/**
+ * Process-wide pool of {@link ExoPlayer} instances. Building a player spins up its playback
+ * thread, renderers and track selector, so instead of paying that cost for every title an
+ * {@link ExoPlayerAdapter} leases a player with {@link #acquire()} and hands it back with
+ * {@link #release(ExoPlayer)} once it is detached from its host.
+ *
+ * <p>At most {@link #getMaxIdlePlayers()} players are kept idle; players that stay idle for longer
+ * than {@link #getIdleTimeoutMs()} are released. All methods must be called from the main thread,
+ * which is the application looper of every player built by this pool.
+ *
+ * <p>Every player is built with a {@link ProfileLoadControl}, so its buffering can follow the
+ * title it plays; see {@link #setBufferProfile(ExoPlayer, BufferProfile)}. Its renderers and
+ * tunneling follow the pool's {@link RendererPolicy}, {@link RendererPolicy#TUNNELED} when the
+ * <code>tunneled_playback</code> resource is set and {@link RendererPolicy#DEFAULT} otherwise.
+ */
+public final class ExoPlayerPool implements ComponentCallbacks2 {
+
+    private static final String TAG = "ExoPlayerPool";
+
+    public static final int DEFAULT_MAX_IDLE_PLAYERS = 1;
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+
+    private static ExoPlayerPool sInstance;
+
+    private final Context mContext;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ArrayDeque<IdlePlayer> mIdlePlayers = new ArrayDeque<>();
+    private final HashMap<ExoPlayer, ProfileLoadControl> mLoadControls = new HashMap<>();
+    private final HashMap<ExoPlayer, RendererPolicy> mRendererPolicies = new HashMap<>();
+    private final BufferProfile mDefaultBufferProfile;
+    private RendererPolicy mRendererPolicy;
+    private int mMaxIdlePlayers = DEFAULT_MAX_IDLE_PLAYERS;
+    private long mIdleTimeoutMs = DEFAULT_IDLE_TIMEOUT_MS;
+
+    private final Runnable mEvictRunnable = new Runnable() {
+        @Override
+        public void run() {
+            evictExpired();
+        }
+    };
+
+    /**
+     * Returns the process-wide pool, creating it on first use.
+     */
+    public static synchronized ExoPlayerPool getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ExoPlayerPool(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ExoPlayerPool(Context context) {
+        mContext = context;
+        mDefaultBufferProfile = BufferProfile.forContent(context, false);
+        mRendererPolicy = context.getResources().getBoolean(R.bool.tunneled_playback)
+                ? RendererPolicy.TUNNELED : RendererPolicy.DEFAULT;
+        mContext.registerComponentCallbacks(this);
+    }
+
+    /**
+     * Leases a player. A warm idle player is returned when one is available, otherwise a new one
+     * is built.
+     */
+    public ExoPlayer acquire() {
+        assertMainThread();
+        IdlePlayer idlePlayer = mIdlePlayers.pollFirst();
+        if (mIdlePlayers.isEmpty()) {
+            mHandler.removeCallbacks(mEvictRunnable);
+        }
+        if (idlePlayer != null) {
+            return idlePlayer.mPlayer;
+        }
+        return onCreatePlayer();
+    }
+
+    /**
+     * Takes a leased player back. The player is stopped and cleared of its media, surface and
+     * per-title state. It is released instead of pooled when the pool is already full, or when it
+     * was built with another renderer policy than the current one. Callers
+     * must remove their own listeners before handing the player back and must not touch it
+     * afterwards.
+     */
+    public void release(ExoPlayer player) {
+        assertMainThread();
+        player.stop();
+        player.clearMediaItems();
+        player.clearVideoSurface();
+        player.setPlayWhenReady(false);
+        player.setRepeatMode(Player.REPEAT_MODE_OFF);
+        player.setShuffleModeEnabled(false);
+        player.setPauseAtEndOfMediaItems(false);
+        player.setPlaybackParameters(PlaybackParameters.DEFAULT);
+        player.setVolume(1f);
+        player.setTrackSelectionParameters(
+                mRendererPolicies.get(player).createTrackSelectionParameters(mContext));
+        setBufferProfile(player, mDefaultBufferProfile);
+
+        if (mIdlePlayers.size() >= mMaxIdlePlayers
+                || mRendererPolicies.get(player) != mRendererPolicy) {
+            releasePlayer(player);
+            return;
+        }
+        mIdlePlayers.addFirst(new IdlePlayer(player, SystemClock.elapsedRealtime()));
+        scheduleEviction();
+    }
+
+    /**
+     * Returns the buffer profile players are built with, and reset to when they are handed back.
+     */
+    public BufferProfile getDefaultBufferProfile() {
+        return mDefaultBufferProfile;
+    }
+
+    /**
+     * Returns the buffer profile the given leased player currently uses.
+     */
+    public BufferProfile getBufferProfile(ExoPlayer player) {
+        return getLoadControl(player).getProfile();
+    }
+
+    /**
+     * Switches the buffering of a leased player. The switch applies to the media that is being
+     * played, without rebuilding the player; the profile is reset to the default when the player
+     * is handed back.
+     */
+    public void setBufferProfile(ExoPlayer player, BufferProfile profile) {
+        assertMainThread();
+        getLoadControl(player).setProfile(profile);
+    }
+
+    private ProfileLoadControl getLoadControl(ExoPlayer player) {
+        ProfileLoadControl loadControl = mLoadControls.get(player);
+        if (loadControl == null) {
+            throw new IllegalArgumentException("Player was not built by this pool");
+        }
+        return loadControl;
+    }
+
+    public RendererPolicy getRendererPolicy() {
+        return mRendererPolicy;
+    }
+
+    /**
+     * Sets how players pick and run their decoders. Applies to players built from now on, so
+     * idle players are released, and leased players once they are handed back.
+     */
+    public void setRendererPolicy(RendererPolicy rendererPolicy) {
+        assertMainThread();
+        if (rendererPolicy == mRendererPolicy) {
+            return;
+        }
+        mRendererPolicy = rendererPolicy;
+        clear();
+    }
+
+    public int getMaxIdlePlayers() {
+        return mMaxIdlePlayers;
+    }
+
+    /**
+     * Sets how many players may be kept idle. Extra idle players are released immediately.
+     */
+    public void setMaxIdlePlayers(int maxIdlePlayers) {
+        assertMainThread();
+        mMaxIdlePlayers = Math.max(0, maxIdlePlayers);
+        while (mIdlePlayers.size() > mMaxIdlePlayers) {
+            releasePlayer(mIdlePlayers.pollLast().mPlayer);
+        }
+    }
+
+    public long getIdleTimeoutMs() {
+        return mIdleTimeoutMs;
+    }
+
+    /**
+     * Sets how long a player may stay idle before it is released.
+     */
+    public void setIdleTimeoutMs(long idleTimeoutMs) {
+        assertMainThread();
+        mIdleTimeoutMs = idleTimeoutMs;
+        evictExpired();
+    }
+
+    /**
+     * Releases every idle player.
+     */
+    public void clear() {
+        assertMainThread();
+        mHandler.removeCallbacks(mEvictRunnable);
+        for (IdlePlayer idlePlayer : mIdlePlayers) {
+            releasePlayer(idlePlayer.mPlayer);
+        }
+        mIdlePlayers.clear();
+    }
+
+    /**
+     * Builds a new player. All pooled players share this configuration, so anything that is
+     * specific to a title must be reset in {@link #release(ExoPlayer)}.
+     */
+    private ExoPlayer onCreatePlayer() {
+        Log.d(TAG, "Building new player, idle players: " + mIdlePlayers.size());
+        ProfileLoadControl loadControl = new ProfileLoadControl(mDefaultBufferProfile);
+        ExoPlayer player = new ExoPlayer.Builder(mContext,
+                mRendererPolicy.createRenderersFactory(mContext),
+                new DefaultMediaSourceFactory(mContext)
+        ).setLoadControl(loadControl).setLooper(Looper.getMainLooper()).build();
+        player.setTrackSelectionParameters(
+                mRendererPolicy.createTrackSelectionParameters(mContext));
+        mLoadControls.put(player, loadControl);
+        mRendererPolicies.put(player, mRendererPolicy);
+        return player;
+    }
+
+    private void releasePlayer(ExoPlayer player) {
+        mLoadControls.remove(player);
+        mRendererPolicies.remove(player);
+        player.release();
+    }
+
+    private void evictExpired() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<IdlePlayer> iterator = mIdlePlayers.iterator();
+        while (iterator.hasNext()) {
+            IdlePlayer idlePlayer = iterator.next();
+            if (now - idlePlayer.mIdleSinceMs >= mIdleTimeoutMs) {
+                releasePlayer(idlePlayer.mPlayer);
+                iterator.remove();
+            }
+        }
+        scheduleEviction();
+    }
+
+    private void scheduleEviction() {
+        mHandler.removeCallbacks(mEvictRunnable);
+        IdlePlayer oldest = mIdlePlayers.peekLast();
+        if (oldest != null) {
+            long delayMs = oldest.mIdleSinceMs + mIdleTimeoutMs - SystemClock.elapsedRealtime();
+            mHandler.postDelayed(mEvictRunnable, Math.max(0, delayMs));
+        }
+    }
+
+    private static void assertMainThread() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            throw new IllegalStateException("ExoPlayerPool must be used from the main thread");
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    private static final class IdlePlayer {
+        final ExoPlayer mPlayer;
+        final long mIdleSinceMs;
+
+        IdlePlayer(ExoPlayer player, long idleSinceMs) {
+            mPlayer = player;
+            mIdleSinceMs = idleSinceMs;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package cs.nzm.atvexo.player;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * {@link MetricsSink} that appends a summary line per session to a local file, for example to
+ * collect sessions from a test device. Writes happen on a background thread. Once the file grows
+ * beyond its size limit it is moved to a <code>.1</code> backup, replacing the previous one.
+ */
+public final class FileMetricsSink implements MetricsSink {
+
+    private static final String TAG = "FileMetricsSink";
+
+    public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    private final File mFile;
+    private final long mMaxBytes;
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+
+    public FileMetricsSink(File file) {
+        this(file, DEFAULT_MAX_BYTES);
+    }
+
+    public FileMetricsSink(File file, long maxBytes) {
+        mFile = file;
+        mMaxBytes = maxBytes;
+    }
+
+    public File getFile() {
+        return mFile;
+    }
+
+    @Override
+    public void onSessionEnded(PlaybackSession session) {
+        final String line = System.currentTimeMillis() + " " + session + "\n";
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(line);
+            }
+        });
+    }
+
+    private void append(String line) {
+        if (mFile.length() > mMaxBytes) {
+            File backup = new File(mFile.getPath() + ".1");
+            if (!mFile.renameTo(backup)) {
+                Log.w(TAG, "Failed to rotate " + mFile);
+            }
+        }
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(mFile, true), StandardCharsets.UTF_8)) {
+            writer.write(line);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write metrics to " + mFile, e);
+        }
+    }
+}
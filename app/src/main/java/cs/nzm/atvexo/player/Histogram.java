@@ -0,0 +1,149 @@
+package cs.nzm.atvexo.player;
+
+import java.util.Arrays;
+
+/**
+ * Histogram over fixed buckets. Recording a value never allocates, so histograms can be fed from
+ * player callbacks that fire many times per second.
+ *
+ * <p>Bucket <code>i</code> counts the values up to and including its upper bound that don't fit
+ * into bucket <code>i - 1</code>; a final bucket counts the values above the largest bound. Not
+ * thread-safe.
+ */
+public final class Histogram {
+
+    private final long[] mUpperBounds;
+    private final long[] mCounts;
+    private long mCount;
+    private long mSum;
+    private long mMin = Long.MAX_VALUE;
+    private long mMax = Long.MIN_VALUE;
+
+    /**
+     * @param upperBounds Upper bounds of the buckets, in ascending order.
+     */
+    public Histogram(long... upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("Bucket bounds must be ascending");
+            }
+        }
+        mUpperBounds = upperBounds.clone();
+        mCounts = new long[upperBounds.length + 1];
+    }
+
+    public void record(long value) {
+        int bucket = 0;
+        while (bucket < mUpperBounds.length && value > mUpperBounds[bucket]) {
+            bucket++;
+        }
+        mCounts[bucket]++;
+        mCount++;
+        mSum += value;
+        mMin = Math.min(mMin, value);
+        mMax = Math.max(mMax, value);
+    }
+
+    public void reset() {
+        Arrays.fill(mCounts, 0);
+        mCount = 0;
+        mSum = 0;
+        mMin = Long.MAX_VALUE;
+        mMax = Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns a copy that is not affected by later changes to this histogram.
+     */
+    public Histogram copy() {
+        Histogram copy = new Histogram(mUpperBounds);
+        System.arraycopy(mCounts, 0, copy.mCounts, 0, mCounts.length);
+        copy.mCount = mCount;
+        copy.mSum = mSum;
+        copy.mMin = mMin;
+        copy.mMax = mMax;
+        return copy;
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    public long getSum() {
+        return mSum;
+    }
+
+    /**
+     * @return The smallest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMin() {
+        return mCount > 0 ? mMin : 0;
+    }
+
+    /**
+     * @return The largest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return mCount > 0 ? mMax : 0;
+    }
+
+    public long getMean() {
+        return mCount > 0 ? mSum / mCount : 0;
+    }
+
+    public int getBucketCount() {
+        return mCounts.length;
+    }
+
+    public long getCount(int bucket) {
+        return mCounts[bucket];
+    }
+
+    /**
+     * @return The upper bound of the given bucket, or {@link Long#MAX_VALUE} for the last one.
+     */
+    public long getUpperBound(int bucket) {
+        return bucket < mUpperBounds.length ? mUpperBounds[bucket] : Long.MAX_VALUE;
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket it falls into, capped at the largest
+     * recorded value.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     */
+    public long getPercentile(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * mCount);
+        long seen = 0;
+        for (int i = 0; i < mCounts.length; i++) {
+            seen += mCounts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(getUpperBound(i), mMax);
+            }
+        }
+        return mMax;
+    }
+
+    /**
+     * Appends a compact summary, for example <code>n=3 mean=120 p50=100 p95=250 max=240</code>.
+     */
+    public void appendTo(StringBuilder builder) {
+        builder.append("n=").append(mCount);
+        if (mCount > 0) {
+            builder.append(" mean=").append(getMean())
+                    .append(" p50=").append(getPercentile(50))
+                    .append(" p95=").append(getPercentile(95))
+                    .append(" max=").append(getMax());
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,269 @@
+package cs.nzm.atvexo.player;
+
+import android.graphics.Bitmap;
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.hls.playlist.HlsMediaPlaylist;
+import com.google.android.exoplayer2.source.hls.playlist.HlsMultivariantPlaylist;
+import com.google.android.exoplayer2.source.hls.playlist.HlsPlaylist;
+import com.google.android.exoplayer2.source.hls.playlist.HlsPlaylistParser;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceInputStream;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.util.UriUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * {@link ThumbnailSource} backed by an HLS <code>EXT-X-I-FRAMES-ONLY</code> playlist. Every entry
+ * of such a playlist is a byte range holding a single key frame, so a thumbnail costs one small
+ * range request (served by the {@link MediaCache} on repeat) instead of opening the whole stream.
+ *
+ * <p>The byte ranges don't carry the container headers, so the headers are read once per segment
+ * and written before the frame: the <code>EXT-X-MAP</code> initialization segment of fragmented
+ * MP4 playlists, or the PAT and PMT packets found at the start of transport stream segments.
+ * Frames are decoded by a single {@link KeyFrameDecoder}, on a software decoder kept for the
+ * lifetime of the source.
+ */
+final class IFrameThumbnailSource implements ThumbnailSource {
+
+    private static final int TS_PACKET_SIZE = 188;
+    private static final int TS_SYNC_BYTE = 0x47;
+    private static final int TS_TABLE_SCAN_PACKETS = 16;
+    private static final int PAT_PID = 0;
+
+    private final DataSource.Factory mDataSourceFactory;
+    private final HlsMediaPlaylist mPlaylist;
+    private final File mScratchFile;
+    // Container headers, by initialization segment range or by transport stream segment.
+    private final HashMap<String, byte[]> mHeaders = new HashMap<>();
+    private final KeyFrameDecoder mDecoder = new KeyFrameDecoder();
+    private boolean mReleased;
+
+    private IFrameThumbnailSource(DataSource.Factory dataSourceFactory,
+                                  HlsMediaPlaylist playlist, File scratchFile) {
+        mDataSourceFactory = dataSourceFactory;
+        mPlaylist = playlist;
+        mScratchFile = scratchFile;
+    }
+
+    /**
+     * Looks for an I-frame variant in the multivariant playlist at the given URI.
+     *
+     * @param scratchDir Where the frames are written to be decoded.
+     * @return The source, or <code>null</code> if the stream has no I-frame variant, or one in
+     * a container other than fragmented MP4 or transport stream.
+     */
+    @Nullable
+    static IFrameThumbnailSource open(DataSource.Factory dataSourceFactory, Uri uri,
+                                      File scratchDir) throws IOException {
+        HlsPlaylist playlist = readPlaylist(dataSourceFactory, uri);
+        if (!(playlist instanceof HlsMultivariantPlaylist)) {
+            return null;
+        }
+        HlsMultivariantPlaylist.Variant iFrameVariant = null;
+        for (HlsMultivariantPlaylist.Variant variant
+                : ((HlsMultivariantPlaylist) playlist).variants) {
+            if ((variant.format.roleFlags & C.ROLE_FLAG_TRICK_PLAY) != 0
+                    && (iFrameVariant == null
+                    || variant.format.bitrate < iFrameVariant.format.bitrate)) {
+                iFrameVariant = variant;
+            }
+        }
+        if (iFrameVariant == null) {
+            return null;
+        }
+        HlsPlaylist iFramePlaylist = readPlaylist(dataSourceFactory, iFrameVariant.url);
+        if (!(iFramePlaylist instanceof HlsMediaPlaylist)
+                || ((HlsMediaPlaylist) iFramePlaylist).segments.isEmpty()) {
+            return null;
+        }
+        HlsMediaPlaylist mediaPlaylist = (HlsMediaPlaylist) iFramePlaylist;
+        HlsMediaPlaylist.Segment segment = mediaPlaylist.segments.get(0);
+        String extension;
+        if (segment.initializationSegment != null) {
+            extension = ".mp4";
+        } else if (isTransportStream(dataSourceFactory,
+                UriUtil.resolveToUri(mediaPlaylist.baseUri, segment.url),
+                segment.byteRangeOffset)) {
+            extension = ".ts";
+        } else {
+            return null;
+        }
+        return new IFrameThumbnailSource(dataSourceFactory, mediaPlaylist,
+                File.createTempFile("iframe", extension, scratchDir));
+    }
+
+    /**
+     * Returns whether the range at the given offset starts with transport stream packets.
+     */
+    private static boolean isTransportStream(DataSource.Factory dataSourceFactory, Uri uri,
+                                             long offset) throws IOException {
+        byte[] head = readRange(dataSourceFactory, uri, offset, TS_PACKET_SIZE * 2);
+        return head.length == TS_PACKET_SIZE * 2
+                && (head[0] & 0xFF) == TS_SYNC_BYTE
+                && (head[TS_PACKET_SIZE] & 0xFF) == TS_SYNC_BYTE;
+    }
+
+    private static HlsPlaylist readPlaylist(DataSource.Factory dataSourceFactory, Uri uri)
+            throws IOException {
+        DataSource dataSource = dataSourceFactory.createDataSource();
+        try (DataSourceInputStream inputStream =
+                     new DataSourceInputStream(dataSource, new DataSpec(uri))) {
+            inputStream.open();
+            Uri resolvedUri = dataSource.getUri() != null ? dataSource.getUri() : uri;
+            return new HlsPlaylistParser().parse(resolvedUri, inputStream);
+        }
+    }
+
+    @Nullable
+    @Override
+    public synchronized Bitmap getThumbnail(long positionMs, int maxWidth, int maxHeight)
+            throws IOException {
+        if (mReleased) {
+            // A worker that was already on its way in when the source was released.
+            return null;
+        }
+        HlsMediaPlaylist.Segment segment = findSegment(positionMs * 1000);
+        Uri segmentUri = UriUtil.resolveToUri(mPlaylist.baseUri, segment.url);
+        byte[] headers = segment.initializationSegment != null
+                ? getInitializationSegment(segment.initializationSegment)
+                : getTables(segmentUri);
+        byte[] frame = readRange(mDataSourceFactory, segmentUri, segment.byteRangeOffset,
+                segment.byteRangeLength);
+
+        try (FileOutputStream output = new FileOutputStream(mScratchFile)) {
+            output.write(headers);
+            output.write(frame);
+        }
+        return mDecoder.decode(mScratchFile, maxWidth, maxHeight);
+    }
+
+    private byte[] getInitializationSegment(HlsMediaPlaylist.Segment initializationSegment)
+            throws IOException {
+        Uri uri = UriUtil.resolveToUri(mPlaylist.baseUri, initializationSegment.url);
+        String key = uri + "@" + initializationSegment.byteRangeOffset;
+        byte[] headers = mHeaders.get(key);
+        if (headers == null) {
+            headers = readRange(mDataSourceFactory, uri, initializationSegment.byteRangeOffset,
+                    initializationSegment.byteRangeLength);
+            mHeaders.put(key, headers);
+        }
+        return headers;
+    }
+
+    private HlsMediaPlaylist.Segment findSegment(long positionUs) {
+        List<HlsMediaPlaylist.Segment> segments = mPlaylist.segments;
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (segments.get(mid).relativeStartTimeUs <= positionUs) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return segments.get(low);
+    }
+
+    /**
+     * Returns the PAT and PMT packets found at the start of the segment.
+     */
+    private byte[] getTables(Uri segmentUri) throws IOException {
+        String key = segmentUri.toString();
+        byte[] tables = mHeaders.get(key);
+        if (tables != null) {
+            return tables;
+        }
+        byte[] head = readRange(mDataSourceFactory, segmentUri, 0,
+                TS_PACKET_SIZE * TS_TABLE_SCAN_PACKETS);
+        List<byte[]> packets = new ArrayList<>();
+        int pmtPid = -1;
+        for (int offset = 0; offset + TS_PACKET_SIZE <= head.length; offset += TS_PACKET_SIZE) {
+            if ((head[offset] & 0xFF) != TS_SYNC_BYTE) {
+                break;
+            }
+            int pid = ((head[offset + 1] & 0x1F) << 8) | (head[offset + 2] & 0xFF);
+            if (pid == PAT_PID) {
+                pmtPid = parsePmtPid(head, offset);
+                packets.add(copyPacket(head, offset));
+            } else if (pid == pmtPid) {
+                packets.add(copyPacket(head, offset));
+                break;
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] packet : packets) {
+            output.write(packet, 0, packet.length);
+        }
+        tables = output.toByteArray();
+        mHeaders.put(key, tables);
+        return tables;
+    }
+
+    /**
+     * Returns the PID of the first program map table listed in the PAT packet at the given offset,
+     * or -1 if there is none.
+     */
+    private static int parsePmtPid(byte[] data, int packetOffset) {
+        int position = packetOffset + 4;
+        int adaptationFieldControl = (data[packetOffset + 3] >> 4) & 0x3;
+        if (adaptationFieldControl == 0x3) {
+            position += 1 + (data[position] & 0xFF);
+        }
+        // Skip the pointer field and the section header up to the first program entry.
+        position += 1 + (data[position] & 0xFF) + 8;
+        int end = packetOffset + TS_PACKET_SIZE - 4;
+        for (; position + 4 <= end; position += 4) {
+            int programNumber = ((data[position] & 0xFF) << 8) | (data[position + 1] & 0xFF);
+            if (programNumber != 0) {
+                return ((data[position + 2] & 0x1F) << 8) | (data[position + 3] & 0xFF);
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] copyPacket(byte[] data, int offset) {
+        byte[] packet = new byte[TS_PACKET_SIZE];
+        System.arraycopy(data, offset, packet, 0, TS_PACKET_SIZE);
+        return packet;
+    }
+
+    private static byte[] readRange(DataSource.Factory dataSourceFactory, Uri uri, long offset,
+                                    long length) throws IOException {
+        DataSpec dataSpec = new DataSpec.Builder()
+                .setUri(uri)
+                .setPosition(offset)
+                .setLength(length)
+                .build();
+        try (InputStream inputStream = new DataSourceInputStream(
+                dataSourceFactory.createDataSource(), dataSpec)) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[TS_PACKET_SIZE * 16];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    @Override
+    public synchronized void release() {
+        mReleased = true;
+        mHeaders.clear();
+        mDecoder.release();
+        mScratchFile.delete();
+    }
+}
@@ -0,0 +1,29 @@
+package cs.nzm.atvexo.player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link MetricsSink} that keeps copies of the finished sessions, for tests and debug screens.
+ */
+public final class InMemoryMetricsSink implements MetricsSink {
+
+    private final List<PlaybackSession> mSessions = new ArrayList<>();
+
+    @Override
+    public synchronized void onSessionEnded(PlaybackSession session) {
+        mSessions.add(session.copy());
+    }
+
+    /**
+     * @return The finished sessions, oldest first.
+     */
+    public synchronized List<PlaybackSession> getSessions() {
+        return Collections.unmodifiableList(new ArrayList<>(mSessions));
+    }
+
+    public synchronized void clear() {
+        mSessions.clear();
+    }
+}
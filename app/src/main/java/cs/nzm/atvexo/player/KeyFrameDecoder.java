@@ -0,0 +1,232 @@
+package cs.nzm.atvexo.player;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.media.Image;
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.mediacodec.MediaCodecUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes single key frames into bitmaps with one {@link MediaCodec} that is kept from frame to
+ * frame, so only the first thumbnail pays for creating and configuring a decoder. Every frame is
+ * read with a {@link MediaExtractor} from a small file holding the container headers and the
+ * frame. The decoder is flushed after every frame, and only recreated when the video format
+ * changes.
+ *
+ * <p>Only software decoders are used. TV devices often have a single instance of each hardware
+ * decoder, which the player needs for playback.
+ *
+ * <p>Frames are decoded to YUV buffers and converted while they are downscaled, so no surface is
+ * needed. Not thread-safe.
+ */
+final class KeyFrameDecoder {
+
+    private static final long TIMEOUT_US = 10_000;
+    // About a second, at TIMEOUT_US per attempt.
+    private static final int MAX_ATTEMPTS = 100;
+
+    private final MediaCodec.BufferInfo mBufferInfo = new MediaCodec.BufferInfo();
+    @Nullable private MediaCodec mCodec;
+    @Nullable private String mMimeType;
+    private int mWidth;
+    private int mHeight;
+
+    /**
+     * Decodes the first video frame of the given file, fitted into the given bounds.
+     *
+     * @return The frame, or <code>null</code> if the file has no decodable video frame.
+     */
+    @Nullable
+    Bitmap decode(File file, int maxWidth, int maxHeight) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(file.getAbsolutePath());
+            int track = selectVideoTrack(extractor);
+            if (track < 0) {
+                return null;
+            }
+            extractor.selectTrack(track);
+            MediaCodec codec = getCodec(extractor.getTrackFormat(track));
+            try {
+                return decodeFrame(codec, extractor, maxWidth, maxHeight);
+            } catch (IllegalStateException e) {
+                // Includes codec exceptions; the decoder can't be trusted with another frame.
+                release();
+                throw new IOException("Failed to decode key frame", e);
+            }
+        } finally {
+            extractor.release();
+        }
+    }
+
+    private static int selectVideoTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            String mimeType = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+            if (mimeType != null && mimeType.startsWith("video/")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private MediaCodec getCodec(MediaFormat format) throws IOException {
+        String mimeType = format.getString(MediaFormat.KEY_MIME);
+        int width = format.getInteger(MediaFormat.KEY_WIDTH);
+        int height = format.getInteger(MediaFormat.KEY_HEIGHT);
+        if (mCodec != null && mimeType.equals(mMimeType) && width == mWidth
+                && height == mHeight) {
+            return mCodec;
+        }
+        release();
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT,
+                MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+        MediaCodec codec = MediaCodec.createByCodecName(findSoftwareDecoder(mimeType));
+        try {
+            codec.configure(format, null, null, 0);
+            codec.start();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            codec.release();
+            throw new IOException("Failed to configure decoder for " + format, e);
+        }
+        mCodec = codec;
+        mMimeType = mimeType;
+        mWidth = width;
+        mHeight = height;
+        return codec;
+    }
+
+    private static String findSoftwareDecoder(String mimeType) throws IOException {
+        try {
+            for (com.google.android.exoplayer2.mediacodec.MediaCodecInfo info
+                    : MediaCodecUtil.getDecoderInfos(mimeType, false, false)) {
+                if (info.softwareOnly) {
+                    return info.name;
+                }
+            }
+        } catch (MediaCodecUtil.DecoderQueryException e) {
+            throw new IOException("Failed to query decoders for " + mimeType, e);
+        }
+        throw new IOException("No software decoder for " + mimeType);
+    }
+
+    @Nullable
+    private Bitmap decodeFrame(MediaCodec codec, MediaExtractor extractor, int maxWidth,
+                               int maxHeight) {
+        boolean inputDone = false;
+        try {
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                if (!inputDone) {
+                    int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        ByteBuffer input = codec.getInputBuffer(inputIndex);
+                        int size = extractor.readSampleData(input, 0);
+                        if (size < 0) {
+                            // Makes the decoder output the frame without waiting for more.
+                            codec.queueInputBuffer(inputIndex, 0, 0, 0,
+                                    MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inputIndex, 0, size,
+                                    extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+                int outputIndex = codec.dequeueOutputBuffer(mBufferInfo, TIMEOUT_US);
+                if (outputIndex < 0) {
+                    continue;
+                }
+                try {
+                    if (mBufferInfo.size > 0) {
+                        Image image = codec.getOutputImage(outputIndex);
+                        if (image != null) {
+                            try {
+                                return toBitmap(image, maxWidth, maxHeight);
+                            } finally {
+                                image.close();
+                            }
+                        }
+                    }
+                    if ((mBufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        return null;
+                    }
+                } finally {
+                    codec.releaseOutputBuffer(outputIndex, false);
+                }
+            }
+            return null;
+        } finally {
+            // Ready for the next frame, including after the end of stream.
+            codec.flush();
+        }
+    }
+
+    /**
+     * Converts a YUV 4:2:0 image to a bitmap that fits into the given bounds, sampling the nearest
+     * source pixel of every target pixel.
+     */
+    private static Bitmap toBitmap(Image image, int maxWidth, int maxHeight) {
+        Rect crop = image.getCropRect();
+        int sourceWidth = crop.width();
+        int sourceHeight = crop.height();
+        float scale = 1f;
+        if (maxWidth > 0 && maxHeight > 0) {
+            scale = Math.min(1f, Math.min((float) maxWidth / sourceWidth,
+                    (float) maxHeight / sourceHeight));
+        }
+        int width = Math.max(1, Math.round(sourceWidth * scale));
+        int height = Math.max(1, Math.round(sourceHeight * scale));
+
+        Image.Plane[] planes = image.getPlanes();
+        ByteBuffer yBuffer = planes[0].getBuffer();
+        ByteBuffer uBuffer = planes[1].getBuffer();
+        ByteBuffer vBuffer = planes[2].getBuffer();
+        int yRowStride = planes[0].getRowStride();
+        int yPixelStride = planes[0].getPixelStride();
+        int uvRowStride = planes[1].getRowStride();
+        int uvPixelStride = planes[1].getPixelStride();
+
+        int[] pixels = new int[width * height];
+        for (int row = 0; row < height; row++) {
+            int sourceY = crop.top + row * sourceHeight / height;
+            for (int column = 0; column < width; column++) {
+                int sourceX = crop.left + column * sourceWidth / width;
+                int uvOffset = (sourceY / 2) * uvRowStride + (sourceX / 2) * uvPixelStride;
+                int y = (yBuffer.get(sourceY * yRowStride + sourceX * yPixelStride) & 0xFF) - 16;
+                int u = (uBuffer.get(uvOffset) & 0xFF) - 128;
+                int v = (vBuffer.get(uvOffset) & 0xFF) - 128;
+                // BT.601, limited range.
+                int r = clamp((298 * y + 409 * v + 128) >> 8);
+                int g = clamp((298 * y - 100 * u - 208 * v + 128) >> 8);
+                int b = clamp((298 * y + 516 * u + 128) >> 8);
+                pixels[row * width + column] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
+
+    /**
+     * Releases the decoder. The next frame creates a new one.
+     */
+    void release() {
+        if (mCodec != null) {
+            mCodec.release();
+            mCodec = null;
+            mMimeType = null;
+        }
+    }
+}
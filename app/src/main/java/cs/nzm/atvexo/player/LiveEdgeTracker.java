@@ -0,0 +1,161 @@
+package cs.nzm.atvexo.player;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.MediaItem;
+
+/**
+ * Samples how far a live stream plays behind its live edge, and jumps back to the edge when the
+ * player falls too far behind for playback-speed adjustment to catch up.
+ *
+ * <p>Small drifts are corrected by ExoPlayer itself, which plays slightly faster or slower within
+ * the speed bounds of the media item's {@link MediaItem.LiveConfiguration}.
+ * Those bounds are kept tight so the speed change stays inaudible, which means a long stall can
+ * leave the player further behind than it could ever recover. Beyond
+ * {@link #getResyncThresholdMs()} the tracker seeks to the default position of the live window.
+ *
+ * <p>Must be used from the main thread.
+ */
+public final class LiveEdgeTracker {
+
+    private static final String TAG = "LiveEdgeTracker";
+
+    static final int SAMPLE_PERIOD_MS = 1000;
+    /**
+     * Time given to a resync to take effect before the distance is trusted again.
+     */
+    static final int RESYNC_GRACE_PERIOD_MS = 5000;
+
+    /**
+     * Receives every live-edge distance sample.
+     */
+    public interface Listener {
+        void onLiveEdgeDistanceSampled(long distanceMs, float playbackSpeed);
+    }
+
+    private final ExoPlayer mPlayer;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private long mResyncThresholdMs;
+    @Nullable private Listener mListener;
+    private boolean mStarted;
+    private long mResyncGraceUntilMs;
+
+    private long mLastDistanceMs = C.TIME_UNSET;
+    private long mMaxDistanceMs;
+    private long mDistanceSumMs;
+    private int mSampleCount;
+    private int mResyncCount;
+
+    private final Runnable mSampleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+            mHandler.postDelayed(this, SAMPLE_PERIOD_MS);
+        }
+    };
+
+    LiveEdgeTracker(ExoPlayer player, long resyncThresholdMs) {
+        mPlayer = player;
+        mResyncThresholdMs = resyncThresholdMs;
+    }
+
+    void setListener(@Nullable Listener listener) {
+        mListener = listener;
+    }
+
+    public long getResyncThresholdMs() {
+        return mResyncThresholdMs;
+    }
+
+    /**
+     * @param resyncThresholdMs Distance to the live edge beyond which the player jumps back to
+     *                          it, or {@link C#TIME_UNSET} to never jump.
+     */
+    void setResyncThresholdMs(long resyncThresholdMs) {
+        mResyncThresholdMs = resyncThresholdMs;
+    }
+
+    void start() {
+        if (!mStarted) {
+            mStarted = true;
+            mHandler.post(mSampleRunnable);
+        }
+    }
+
+    void stop() {
+        mStarted = false;
+        mHandler.removeCallbacks(mSampleRunnable);
+    }
+
+    /**
+     * Stops sampling and forgets the statistics of the current stream.
+     */
+    void reset() {
+        stop();
+        if (mSampleCount > 0) {
+            Log.d(TAG, "Live session: mean distance " + getMeanDistanceMs() + "ms, max "
+                    + mMaxDistanceMs + "ms, " + mResyncCount + " resyncs");
+        }
+        mLastDistanceMs = C.TIME_UNSET;
+        mMaxDistanceMs = 0;
+        mDistanceSumMs = 0;
+        mSampleCount = 0;
+        mResyncCount = 0;
+        mResyncGraceUntilMs = 0;
+    }
+
+    /**
+     * @return The last sampled distance to the live edge in milliseconds, or
+     * {@link C#TIME_UNSET} if the current stream is not live.
+     */
+    public long getLastDistanceMs() {
+        return mLastDistanceMs;
+    }
+
+    public long getMaxDistanceMs() {
+        return mMaxDistanceMs;
+    }
+
+    public long getMeanDistanceMs() {
+        return mSampleCount > 0 ? mDistanceSumMs / mSampleCount : C.TIME_UNSET;
+    }
+
+    public int getResyncCount() {
+        return mResyncCount;
+    }
+
+    private void sample() {
+        if (!mPlayer.isCurrentMediaItemLive()) {
+            mLastDistanceMs = C.TIME_UNSET;
+            return;
+        }
+        long distanceMs = mPlayer.getCurrentLiveOffset();
+        if (distanceMs == C.TIME_UNSET) {
+            return;
+        }
+        mLastDistanceMs = distanceMs;
+        mMaxDistanceMs = Math.max(mMaxDistanceMs, distanceMs);
+        mDistanceSumMs += distanceMs;
+        mSampleCount++;
+        if (mListener != null) {
+            mListener.onLiveEdgeDistanceSampled(distanceMs,
+                    mPlayer.getPlaybackParameters().speed);
+        }
+
+        long now = SystemClock.uptimeMillis();
+        if (mResyncThresholdMs != C.TIME_UNSET && distanceMs > mResyncThresholdMs
+                && now >= mResyncGraceUntilMs) {
+            Log.d(TAG, "Resyncing to live edge, distance " + distanceMs + "ms");
+            mResyncGraceUntilMs = now + RESYNC_GRACE_PERIOD_MS;
+            mResyncCount++;
+            mPlayer.seekToDefaultPosition();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package cs.nzm.atvexo.player;
+
+import android.util.Log;
+
+/**
+ * {@link MetricsSink} that logs a summary line per session.
+ */
+public final class LogcatMetricsSink implements MetricsSink {
+
+    private final String mTag;
+
+    public LogcatMetricsSink() {
+        this("PlaybackMetrics");
+    }
+
+    public LogcatMetricsSink(String tag) {
+        mTag = tag;
+    }
+
+    @Override
+    public void onSessionEnded(PlaybackSession session) {
+        Log.i(mTag, session.toString());
+    }
+}
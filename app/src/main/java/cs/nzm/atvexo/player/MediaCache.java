@@ -0,0 +1,318 @@
+package cs.nzm.atvexo.player;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.database.StandaloneDatabaseProvider;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.google.android.exoplayer2.upstream.cache.CacheDataSource;
+import com.google.android.exoplayer2.upstream.cache.CacheKeyFactory;
+import com.google.android.exoplayer2.upstream.cache.LeastRecentlyUsedCacheEvictor;
+import com.google.android.exoplayer2.upstream.cache.SimpleCache;
+import com.google.android.exoplayer2.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide on-disk cache for media segments, backed by a {@link SimpleCache} with
+ * least-recently-used eviction. Known signing and session token parameters are dropped from URLs
+ * before they are used as cache keys, so that tokens that change from session to session don't
+ * defeat the cache. Other query parameters are kept, since they may select the content. Manifests
+ * are never cached because live playlists change on every refresh.
+ *
+ * <p>The cache size must be configured with {@link #setMaxBytes(long)} before the first call to
+ * {@link #getInstance(Context)}.
+ */
+public final class MediaCache {
+
+    private static final String TAG = "MediaCache";
+    private static final String CACHE_DIRECTORY = "media";
+
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Lower-cased names of the query parameters that carry CDN signatures or session tokens
+     * rather than select content: CloudFront and Google Cloud signed URLs, Akamai and Wowza
+     * tokens, and common generic names.
+     */
+    private static final Set<String> TOKEN_PARAMETERS = new HashSet<>(Arrays.asList(
+            "expires", "signature", "key-pair-id", "policy", "googleaccessid", "hdnts", "hdnea",
+            "__token__", "token", "wowzatokenhash", "wowzatokenstarttime", "wowzatokenendtime",
+            "session", "sessionid"));
+
+    /**
+     * Prefix of the parameters of AWS pre-signed URLs, such as <code>X-Amz-Signature</code>.
+     */
+    private static final String AWS_PARAMETER_PREFIX = "x-amz-";
+
+    /**
+     * Drops the token parameters and the fragment of URLs, and lower-cases the scheme and host.
+     */
+    public static final CacheKeyFactory KEY_FACTORY = new CacheKeyFactory() {
+        @Override
+        public String buildCacheKey(DataSpec dataSpec) {
+            if (dataSpec.key != null) {
+                return dataSpec.key;
+            }
+            return normalizeKey(dataSpec.uri);
+        }
+    };
+
+    private static long sMaxBytes = DEFAULT_MAX_BYTES;
+    private static MediaCache sInstance;
+
+    private final SimpleCache mCache;
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private final AtomicLong mBytesSaved = new AtomicLong();
+
+    private final CacheDataSource.EventListener mEventListener =
+            new CacheDataSource.EventListener() {
+                @Override
+                public void onCachedBytesRead(long cacheSizeBytes, long cachedBytesRead) {
+                    mHitCount.incrementAndGet();
+                    mBytesSaved.addAndGet(cachedBytesRead);
+                }
+
+                @Override
+                public void onCacheIgnored(int reason) {
+                    Log.d(TAG, "Cache ignored, reason: " + reason);
+                }
+            };
+
+    /**
+     * Sets the cache size cap. Has no effect once the cache was created.
+     */
+    public static synchronized void setMaxBytes(long maxBytes) {
+        if (sInstance != null) {
+            Log.w(TAG, "Cache already created, ignoring new size " + maxBytes);
+            return;
+        }
+        sMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the process-wide cache, creating it on first use.
+     */
+    public static synchronized MediaCache getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new MediaCache(new SimpleCache(
+                    new File(appContext.getCacheDir(), CACHE_DIRECTORY),
+                    new LeastRecentlyUsedCacheEvictor(sMaxBytes),
+                    new StandaloneDatabaseProvider(appContext)));
+        }
+        return sInstance;
+    }
+
+    private MediaCache(SimpleCache cache) {
+        mCache = cache;
+    }
+
+    /**
+     * Returns the cache key used for the given URI.
+     */
+    public static String normalizeKey(Uri uri) {
+        String scheme = uri.getScheme();
+        String authority = uri.getEncodedAuthority();
+        if (scheme == null || authority == null) {
+            return uri.toString();
+        }
+        StringBuilder key = new StringBuilder()
+                .append(scheme.toLowerCase(Locale.US))
+                .append("://")
+                .append(authority.toLowerCase(Locale.US));
+        String path = uri.getEncodedPath();
+        if (path != null) {
+            key.append(path);
+        }
+        String query = uri.getEncodedQuery();
+        if (query != null) {
+            char separator = '?';
+            for (String parameter : query.split("&")) {
+                if (parameter.isEmpty() || isTokenParameter(parameter)) {
+                    continue;
+                }
+                key.append(separator).append(parameter);
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isTokenParameter(String parameter) {
+        int nameEnd = parameter.indexOf('=');
+        String name = (nameEnd >= 0 ? parameter.substring(0, nameEnd) : parameter)
+                .toLowerCase(Locale.US);
+        return TOKEN_PARAMETERS.contains(name) || name.startsWith(AWS_PARAMETER_PREFIX);
+    }
+
+    private static boolean isManifest(Uri uri) {
+        int contentType = Util.inferContentType(uri);
+        return contentType == C.CONTENT_TYPE_HLS || contentType == C.CONTENT_TYPE_DASH
+                || contentType == C.CONTENT_TYPE_SS;
+    }
+
+    /**
+     * Wraps an upstream factory so that segments are read from and written to the cache, while
+     * manifests always go to the upstream.
+     */
+    public DataSource.Factory buildDataSourceFactory(final DataSource.Factory upstreamFactory) {
+        final DataSource.Factory countingFactory = new DataSource.Factory() {
+            @Override
+            public DataSource createDataSource() {
+                return new MissCountingDataSource(upstreamFactory.createDataSource());
+            }
+        };
+        final CacheDataSource.Factory cacheFactory = new CacheDataSource.Factory()
+                .setCache(mCache)
+                .setCacheKeyFactory(KEY_FACTORY)
+                .setUpstreamDataSourceFactory(countingFactory)
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR)
+                .setEventListener(mEventListener);
+        return new DataSource.Factory() {
+            @Override
+            public DataSource createDataSource() {
+                return new ManifestBypassDataSource(
+                        cacheFactory.createDataSource(), upstreamFactory.createDataSource());
+            }
+        };
+    }
+
+    /**
+     * Number of reads that were served, at least in part, from the cache.
+     */
+    public long getHitCount() {
+        return mHitCount.get();
+    }
+
+    /**
+     * Number of reads that had to go to the network while filling the cache.
+     */
+    public long getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * Number of bytes that were read from the cache instead of the network.
+     */
+    public long getBytesSaved() {
+        return mBytesSaved.get();
+    }
+
+    public long getCacheSpace() {
+        return mCache.getCacheSpace();
+    }
+
+    /**
+     * Counts every open of the upstream behind the cache as a miss.
+     */
+    private final class MissCountingDataSource implements DataSource {
+
+        private final DataSource mUpstream;
+
+        MissCountingDataSource(DataSource upstream) {
+            mUpstream = upstream;
+        }
+
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+            mUpstream.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            mMissCount.incrementAndGet();
+            return mUpstream.open(dataSpec);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return mUpstream.read(buffer, offset, length);
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return mUpstream.getUri();
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return mUpstream.getResponseHeaders();
+        }
+
+        @Override
+        public void close() throws IOException {
+            mUpstream.close();
+        }
+    }
+
+    /**
+     * Sends manifest requests straight to the upstream and everything else through the cache.
+     */
+    private static final class ManifestBypassDataSource implements DataSource {
+
+        private final DataSource mCacheDataSource;
+        private final DataSource mUpstream;
+        @Nullable private DataSource mActive;
+
+        ManifestBypassDataSource(DataSource cacheDataSource, DataSource upstream) {
+            mCacheDataSource = cacheDataSource;
+            mUpstream = upstream;
+        }
+
+        @Override
+        public void addTransferListener(TransferListener transferListener) {
+            mCacheDataSource.addTransferListener(transferListener);
+            mUpstream.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(DataSpec dataSpec) throws IOException {
+            mActive = isManifest(dataSpec.uri) ? mUpstream : mCacheDataSource;
+            return mActive.open(dataSpec);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            return mActive.read(buffer, offset, length);
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return mActive != null ? mActive.getUri() : null;
+        }
+
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return mActive != null ? mActive.getResponseHeaders() : mUpstream.getResponseHeaders();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (mActive != null) {
+                try {
+                    mActive.close();
+                } finally {
+                    mActive = null;
+                }
+            }
+        }
+    }
+}
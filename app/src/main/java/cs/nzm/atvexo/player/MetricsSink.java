@@ -0,0 +1,18 @@
+package cs.nzm.atvexo.player;
+
+/**
+ * Receives the metrics of every finished playback session.
+ *
+ * @see LogcatMetricsSink
+ * @see FileMetricsSink
+ * @see InMemoryMetricsSink
+ */
+public interface MetricsSink {
+
+    /**
+     * Called on the main thread when a session ends. The session is reused afterwards, so sinks
+     * that keep it must {@link PlaybackSession#copy() copy} it, and sinks that work on another
+     * thread must read it before returning.
+     */
+    void onSessionEnded(PlaybackSession session);
+}
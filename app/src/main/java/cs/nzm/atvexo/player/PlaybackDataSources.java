@@ -0,0 +1,50 @@
+package cs.nzm.atvexo.player;
+
+import android.content.Context;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DefaultDataSource;
+import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+import com.google.android.exoplayer2.util.Util;
+
+/**
+ * Builds the {@link DataSource.Factory} chain shared by playback and by the components that fetch
+ * media ahead of it, so that every reader sees the same bytes.
+ */
+public final class PlaybackDataSources {
+
+    private static final String USER_AGENT_NAME = "ExoPlayerAdapter";
+
+    private PlaybackDataSources() {
+    }
+
+    /**
+     * Returns a factory for sources that read from the network, or from local files and assets,
+     * without any caching.
+     */
+    public static DataSource.Factory getNetworkFactory(Context context) {
+        Context appContext = context.getApplicationContext();
+        DefaultHttpDataSource.Factory httpFactory = new DefaultHttpDataSource.Factory()
+                .setUserAgent(Util.getUserAgent(appContext, USER_AGENT_NAME))
+                .setAllowCrossProtocolRedirects(true);
+        return new DefaultDataSource.Factory(appContext, httpFactory);
+    }
+
+    /**
+     * Returns a factory for sources that read segments through the {@link MediaCache} and fall
+     * back to {@link #getNetworkFactory(Context)}.
+     */
+    public static DataSource.Factory getUpstreamFactory(Context context) {
+        return MediaCache.getInstance(context)
+                .buildDataSourceFactory(getNetworkFactory(context));
+    }
+
+    /**
+     * Returns the factory used by the player. It serves preloaded bytes from the
+     * {@link StreamPreloader} first and falls back to {@link #getUpstreamFactory(Context)}.
+     */
+    public static DataSource.Factory getPlaybackFactory(Context context) {
+        return new PreloadDataSource.Factory(
+                StreamPreloader.getInstance(context).getStore(), getUpstreamFactory(context));
+    }
+}
@@ -0,0 +1,302 @@
+package cs.nzm.atvexo.player;
+
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.decoder.DecoderCounters;
+import com.google.android.exoplayer2.decoder.DecoderReuseEvaluation;
+import com.google.android.exoplayer2.mediacodec.MediaCodecRenderer;
+
+/**
+ * Collects quality-of-experience metrics of the player it is attached to as an
+ * {@link AnalyticsListener}: startup time, stalls, seeks, dropped frames and bitrate switches.
+ *
+ * <p>Each session is accumulated into a single {@link PlaybackSession} whose histograms are
+ * allocated once, so no callback allocates. When a session ends, it is handed to the
+ * {@link MetricsSink} and reset for the next one. Must be used from the main thread, which is
+ * where the player delivers analytics events.
+ */
+public final class PlaybackMetrics implements AnalyticsListener, LiveEdgeTracker.Listener {
+
+    private final PlaybackSession mSession = new PlaybackSession();
+    private MetricsSink mSink;
+    private boolean mActive;
+
+    private long mSessionStartMs;
+    private boolean mFirstFrameRendered;
+    private boolean mPlayWhenReady;
+    private long mPlayingSinceMs = C.TIME_UNSET;
+    private long mStallSinceMs = C.TIME_UNSET;
+    private long mSeekSinceMs = C.TIME_UNSET;
+    private int mVideoBitrate = Format.NO_VALUE;
+    // Decoders that failed to initialize since the last one that succeeded, per renderer.
+    private int mPendingVideoInitFailures;
+    private int mPendingAudioInitFailures;
+
+    public PlaybackMetrics(MetricsSink sink) {
+        mSink = sink;
+    }
+
+    public void setSink(MetricsSink sink) {
+        mSink = sink;
+    }
+
+    public MetricsSink getSink() {
+        return mSink;
+    }
+
+    /**
+     * Returns the counters of the current session. They keep changing until the session ends.
+     */
+    public PlaybackSession getSession() {
+        return mSession;
+    }
+
+    /**
+     * Starts a new session, ending the current one first.
+     *
+     * @param mediaUri The media that is about to be prepared.
+     */
+    public void startSession(@Nullable String mediaUri) {
+        endSession();
+        mActive = true;
+        mSession.mMediaUri = mediaUri;
+        mSessionStartMs = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Starts a session for the item of a queue the player moved on to without being prepared
+     * again, ending the current one first. The decoders and the video format carry over, since
+     * the callbacks that report them don't fire again for the new item.
+     *
+     * @param mediaUri The media the player moved on to.
+     * @param playing Whether the player is playing, in which case playing time counts from now.
+     * @param gapless Whether the player moved on by itself at the end of the previous item. No
+     *                first frame is reported for the new item then, so it has no startup time.
+     */
+    public void startSession(@Nullable String mediaUri, boolean playing, boolean gapless) {
+        String videoDecoderName = mSession.mVideoDecoderName;
+        String audioDecoderName = mSession.mAudioDecoderName;
+        int videoBitrate = mVideoBitrate;
+        startSession(mediaUri);
+        mSession.mVideoDecoderName = videoDecoderName;
+        mSession.mAudioDecoderName = audioDecoderName;
+        mVideoBitrate = videoBitrate;
+        if (videoBitrate != Format.NO_VALUE) {
+            mSession.mVideoBitrates.record(videoBitrate / 1000);
+        }
+        if (playing) {
+            mPlayingSinceMs = mSessionStartMs;
+        }
+        mFirstFrameRendered = gapless;
+    }
+
+    /**
+     * Ends the current session, if any, and reports it to the sink.
+     */
+    public void endSession() {
+        if (!mActive) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (mPlayingSinceMs != C.TIME_UNSET) {
+            mSession.mPlayingTimeMs += now - mPlayingSinceMs;
+        }
+        if (mStallSinceMs != C.TIME_UNSET) {
+            endStall(now);
+        }
+        mActive = false;
+        mSink.onSessionEnded(mSession);
+        mSession.reset();
+        mFirstFrameRendered = false;
+        mPlayingSinceMs = C.TIME_UNSET;
+        mStallSinceMs = C.TIME_UNSET;
+        mSeekSinceMs = C.TIME_UNSET;
+        mVideoBitrate = Format.NO_VALUE;
+        mPendingVideoInitFailures = 0;
+        mPendingAudioInitFailures = 0;
+    }
+
+    @Override
+    public void onPlayWhenReadyChanged(EventTime eventTime, boolean playWhenReady, int reason) {
+        mPlayWhenReady = playWhenReady;
+        if (!playWhenReady && mStallSinceMs != C.TIME_UNSET) {
+            // Pausing during a stall ends it; the user is no longer waiting.
+            endStall(eventTime.realtimeMs);
+        }
+    }
+
+    @Override
+    public void onPlaybackStateChanged(EventTime eventTime, int state) {
+        if (!mActive) {
+            return;
+        }
+        if (state == Player.STATE_BUFFERING) {
+            if (mFirstFrameRendered && mPlayWhenReady && mSeekSinceMs == C.TIME_UNSET
+                    && mStallSinceMs == C.TIME_UNSET) {
+                mStallSinceMs = eventTime.realtimeMs;
+                mSession.mStallCount++;
+            }
+        } else {
+            if (mStallSinceMs != C.TIME_UNSET) {
+                endStall(eventTime.realtimeMs);
+            }
+            if (mSeekSinceMs != C.TIME_UNSET && state == Player.STATE_READY) {
+                mSession.mSeekDurations.record(eventTime.realtimeMs - mSeekSinceMs);
+                mSeekSinceMs = C.TIME_UNSET;
+            }
+        }
+    }
+
+    @Override
+    public void onIsPlayingChanged(EventTime eventTime, boolean isPlaying) {
+        if (!mActive) {
+            return;
+        }
+        if (isPlaying) {
+            mPlayingSinceMs = eventTime.realtimeMs;
+        } else if (mPlayingSinceMs != C.TIME_UNSET) {
+            mSession.mPlayingTimeMs += eventTime.realtimeMs - mPlayingSinceMs;
+            mPlayingSinceMs = C.TIME_UNSET;
+        }
+    }
+
+    @Override
+    public void onPositionDiscontinuity(EventTime eventTime, Player.PositionInfo oldPosition,
+                                        Player.PositionInfo newPosition, int reason) {
+        if (mActive && reason == Player.DISCONTINUITY_REASON_SEEK) {
+            if (mStallSinceMs != C.TIME_UNSET) {
+                endStall(eventTime.realtimeMs);
+            }
+            // Recorded once READY is reported again. The seek has masked the state to
+            // BUFFERING, which is only reported after this callback, even when the target is
+            // already buffered.
+            mSeekSinceMs = eventTime.realtimeMs;
+        }
+    }
+
+    @Override
+    public void onRenderedFirstFrame(EventTime eventTime, Object output, long renderTimeMs) {
+        if (mActive && !mFirstFrameRendered) {
+            mFirstFrameRendered = true;
+            mSession.mStartupTimeMs = eventTime.realtimeMs - mSessionStartMs;
+        }
+    }
+
+    @Override
+    public void onDroppedVideoFrames(EventTime eventTime, int droppedFrames, long elapsedMs) {
+        if (mActive) {
+            mSession.mDroppedFrames += droppedFrames;
+            mSession.mDroppedFrameBursts.record(droppedFrames);
+        }
+    }
+
+    @Override
+    public void onVideoDecoderInitialized(EventTime eventTime, String decoderName,
+                                          long initializedTimestampMs,
+                                          long initializationDurationMs) {
+        if (mActive) {
+            mSession.mVideoDecoderName = decoderName;
+            mSession.mDecoderFallbackCount += mPendingVideoInitFailures;
+        }
+        mPendingVideoInitFailures = 0;
+    }
+
+    @Override
+    public void onAudioDecoderInitialized(EventTime eventTime, String decoderName,
+                                          long initializedTimestampMs,
+                                          long initializationDurationMs) {
+        if (mActive) {
+            mSession.mAudioDecoderName = decoderName;
+            mSession.mDecoderFallbackCount += mPendingAudioInitFailures;
+        }
+        mPendingAudioInitFailures = 0;
+    }
+
+    /**
+     * Reported for every decoder that failed to initialize. A failure only counts as a fallback
+     * once a later decoder of the same renderer initializes; the last failure of a renderer that
+     * ran out of decoders fails playback instead.
+     */
+    @Override
+    public void onVideoCodecError(EventTime eventTime, Exception videoCodecError) {
+        if (mActive && isInitializationFailure(videoCodecError)) {
+            mPendingVideoInitFailures++;
+        }
+    }
+
+    @Override
+    public void onAudioCodecError(EventTime eventTime, Exception audioCodecError) {
+        if (mActive && isInitializationFailure(audioCodecError)) {
+            mPendingAudioInitFailures++;
+        }
+    }
+
+    private static boolean isInitializationFailure(Exception codecError) {
+        return codecError instanceof MediaCodecRenderer.DecoderInitializationException;
+    }
+
+    @Override
+    public void onVideoDisabled(EventTime eventTime, DecoderCounters decoderCounters) {
+        if (mActive) {
+            decoderCounters.ensureUpdated();
+            mSession.mRenderedFrames += decoderCounters.renderedOutputBufferCount;
+        }
+    }
+
+    @Override
+    public void onVideoInputFormatChanged(EventTime eventTime, Format format,
+                                          @Nullable DecoderReuseEvaluation evaluation) {
+        if (!mActive || format.bitrate == Format.NO_VALUE) {
+            return;
+        }
+        mSession.mVideoBitrates.record(format.bitrate / 1000);
+        if (mVideoBitrate != Format.NO_VALUE && format.bitrate != mVideoBitrate) {
+            mSession.mBitrateSwitchCount++;
+            if (format.bitrate > mVideoBitrate) {
+                mSession.mUpswitchCount++;
+            } else {
+                mSession.mDownswitchCount++;
+            }
+        }
+        mVideoBitrate = format.bitrate;
+    }
+
+    @Override
+    public void onPlayerError(EventTime eventTime, PlaybackException error) {
+        if (mActive) {
+            mSession.mErrorCount++;
+        }
+    }
+
+    /**
+     * Records the time from a switch of the surface the video is shown on to the first frame
+     * rendered on the new one. Reported by the {@link VideoSurfaceManager}.
+     */
+    public void onSurfaceSwitchRendered(long latencyMs) {
+        if (mActive) {
+            mSession.mSurfaceSwitchCount++;
+            mSession.mSurfaceSwitchLatencies.record(latencyMs);
+        }
+    }
+
+    @Override
+    public void onLiveEdgeDistanceSampled(long distanceMs, float playbackSpeed) {
+        if (mActive) {
+            mSession.mLiveOffsets.record(distanceMs);
+        }
+    }
+
+    private void endStall(long nowMs) {
+        long durationMs = nowMs - mStallSinceMs;
+        mSession.mStallTimeMs += durationMs;
+        mSession.mStallDurations.record(durationMs);
+        mStallSinceMs = C.TIME_UNSET;
+    }
+}
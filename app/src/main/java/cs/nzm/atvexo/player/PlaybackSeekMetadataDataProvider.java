@@ -2,43 +2,67 @@ package cs.nzm.atvexo.player;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.media.MediaMetadataRetriever;
-import android.os.AsyncTask;
 import android.util.Log;
-import android.util.SparseArray;
 
 import androidx.leanback.widget.PlaybackSeekDataProvider;
 
-import java.io.IOException;
-import java.util.HashMap;
+import cs.nzm.atvexo.R;
 
 public class PlaybackSeekMetadataDataProvider extends PlaybackSeekDataProvider {
     private final Context mContext;
     private final String mVideoUrl;
-    private long[] mSeekPositions= new long[0];
-    private final SparseArray<LoadBitmapAsyncTask> mTasks = new SparseArray<>();
+    private final ThumbnailEngine mThumbnailEngine;
+    private final ThumbnailCache mThumbnailCache;
+    private final int mThumbnailWidth;
+    private final int mThumbnailHeight;
+    private final long mInterval;
+    private long mDurationMs;
+    private volatile long[] mSeekPositions = new long[0];
+    private final ThumbnailScheduler mScheduler;
 
     public PlaybackSeekMetadataDataProvider(Context context,
                                             String videoUrl,
                                             long interval) {
+        this(context, videoUrl, null, interval);
+    }
+
+    /**
+     * @param spriteSheetUrl URL of a WebVTT sprite-sheet thumbnail track for the video, or
+     *                       <code>null</code> to take thumbnails from the video itself.
+     */
+    public PlaybackSeekMetadataDataProvider(Context context,
+                                            String videoUrl,
+                                            String spriteSheetUrl,
+                                            long interval) {
         mContext = context;
         mVideoUrl = videoUrl;
+        mThumbnailEngine = new ThumbnailEngine(context, videoUrl, spriteSheetUrl);
+        mThumbnailCache = ThumbnailCache.getInstance(context);
+        mThumbnailWidth = context.getResources()
+                .getDimensionPixelSize(R.dimen.seek_thumbnail_width);
+        mThumbnailHeight = context.getResources()
+                .getDimensionPixelSize(R.dimen.seek_thumbnail_height);
+        mScheduler = new ThumbnailScheduler(new ThumbnailScheduler.Loader() {
+            @Override
+            public Bitmap load(int index) {
+                long[] positions = mSeekPositions;
+                return index < positions.length ? loadThumbnail(positions[index]) : null;
+            }
+        }, ThumbnailScheduler.DEFAULT_WORKER_COUNT);
 
-        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
-        try {
-            retriever.setDataSource(mVideoUrl, new HashMap<>());
-
-            long duration = Long.parseLong(
-                    retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION));
+        mInterval = interval;
+    }
 
-            int size = (int) (duration / interval) + 1;
-            mSeekPositions = new long[size];
-            for (int i = 0; i < size; i++) {
-                mSeekPositions[i] = i * interval;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Publishes the seek positions for the given duration. The player reports the duration once it
+     * is prepared, so positions are empty until then and seeking shows no thumbnails.
+     */
+    public void setDuration(long durationMs) {
+        if (durationMs <= 0 || durationMs == mDurationMs) {
+            return;
         }
+        mDurationMs = durationMs;
+        mSeekPositions = SeekPositions.compute(durationMs, mInterval);
     }
 
     @Override
@@ -46,61 +70,55 @@ public class PlaybackSeekMetadataDataProvider extends PlaybackSeekDataProvider {
         return mSeekPositions;
     }
 
+    /**
+     * Called when seeking ends and the seek row lets go of its thumbnails.
+     */
     @Override
     public void reset() {
-        for (int i = 0; i < mTasks.size(); i++) {
-            LoadBitmapAsyncTask task = mTasks.get(i);
-            if (task != null)
-                task.cancel(true);
-        }
-        mTasks.clear();
+        mScheduler.cancelAll();
+        mThumbnailCache.recycleEvicted();
     }
 
-    @Override
-    public void getThumbnail(int index, ResultCallback callback) {
-        LoadBitmapAsyncTask task = mTasks.get(index);
-        if (task == null) {
-            long position = getSeekPositions()[index];
-            task = new LoadBitmapAsyncTask(index, mVideoUrl, position, callback);
-            mTasks.put(index, task);
-            task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
-        }
+    /**
+     * Releases the thumbnail workers and engine. The provider must not be used afterwards.
+     */
+    public void release() {
+        mScheduler.release();
+        mThumbnailEngine.release();
     }
 
-    class LoadBitmapAsyncTask extends AsyncTask<Void, Void, Bitmap> {
-
-        final int mIndex;
-        private final String mVideoUrl;
-        private final long position;
-        final ResultCallback mResultCallback;
-
-        public LoadBitmapAsyncTask(int index, String videoUrl, long position, ResultCallback resultCallback) {
-            mIndex = index;
-            mVideoUrl = videoUrl;
-            this.position = position;
-            mResultCallback = resultCallback;
+    @Override
+    public void getThumbnail(int index, final ResultCallback callback) {
+        long position = getSeekPositions()[index];
+        Bitmap cached = mThumbnailCache.get(mVideoUrl, position);
+        if (cached != null) {
+            mScheduler.mark(index);
+            callback.onThumbnailLoaded(cached, index);
+            return;
         }
+        mScheduler.schedule(index, new ThumbnailScheduler.Callback() {
+            @Override
+            public void onThumbnailLoaded(Bitmap bitmap, int index) {
+                callback.onThumbnailLoaded(bitmap, index);
+            }
+        });
+    }
 
-        @Override
-        protected Bitmap doInBackground(Void... voids) {
-            MediaMetadataRetriever retriever = new MediaMetadataRetriever();
-            retriever.setDataSource(mVideoUrl, new HashMap<>());
-            Log.d("SeekProvider", "position: " + position);
-
-            Bitmap thumbnail = retriever.getFrameAtTime(position * 1000);
-            try {
-                retriever.release();
-            } catch (IOException e) {
-                e.printStackTrace();
+    /**
+     * Loads and caches a thumbnail. Runs on a {@link ThumbnailScheduler} worker.
+     */
+    private Bitmap loadThumbnail(long position) {
+        Log.d("SeekProvider", "position: " + position);
+        try {
+            Bitmap thumbnail = mThumbnailEngine.getThumbnail(position, mThumbnailWidth,
+                    mThumbnailHeight, mThumbnailCache.getBitmapPool());
+            if (thumbnail != null) {
+                mThumbnailCache.put(mVideoUrl, position, thumbnail);
             }
             return thumbnail;
-        }
-
-        @Override
-        protected void onPostExecute(Bitmap bitmap) {
-            super.onPostExecute(bitmap);
-            mResultCallback.onThumbnailLoaded(bitmap, mIndex);
-            mTasks.remove(mIndex);
+        } catch (Exception e) {
+            Log.w("SeekProvider", "Failed to load thumbnail at " + position, e);
+            return null;
         }
     }
 }
@@ -0,0 +1,300 @@
+package cs.nzm.atvexo.player;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+
+/**
+ * Quality-of-experience counters of a single playback session, from
+ * {@link ExoPlayerAdapter#setDataSource} until the media is reset or the adapter released.
+ * Filled in by {@link PlaybackMetrics} and handed to a {@link MetricsSink} when the session ends.
+ *
+ * <p>Times are in milliseconds, bitrates in kbit/s.
+ */
+public final class PlaybackSession {
+
+    private static final long[] STARTUP_BOUNDS_MS =
+            {250, 500, 750, 1000, 1500, 2000, 3000, 5000, 10000};
+    private static final long[] STALL_BOUNDS_MS =
+            {100, 250, 500, 1000, 2000, 5000, 10000, 30000};
+    private static final long[] DROPPED_FRAMES_BOUNDS = {1, 2, 5, 10, 25, 50, 100};
+    private static final long[] BITRATE_BOUNDS_KBPS =
+            {500, 1000, 2000, 3000, 4500, 6000, 8000, 12000, 20000};
+    private static final long[] LIVE_OFFSET_BOUNDS_MS =
+            {2000, 4000, 6000, 8000, 10000, 15000, 20000, 30000, 60000};
+    private static final long[] SURFACE_SWITCH_BOUNDS_MS = {16, 33, 50, 100, 250, 500, 1000};
+
+    @Nullable String mMediaUri;
+    @Nullable String mVideoDecoderName;
+    @Nullable String mAudioDecoderName;
+    int mDecoderFallbackCount;
+    long mStartupTimeMs = C.TIME_UNSET;
+    long mPlayingTimeMs;
+    long mStallTimeMs;
+    int mStallCount;
+    long mDroppedFrames;
+    long mRenderedFrames;
+    int mBitrateSwitchCount;
+    int mUpswitchCount;
+    int mDownswitchCount;
+    int mErrorCount;
+    int mSurfaceSwitchCount;
+    final Histogram mStallDurations;
+    final Histogram mSeekDurations;
+    final Histogram mDroppedFrameBursts;
+    final Histogram mVideoBitrates;
+    final Histogram mLiveOffsets;
+    final Histogram mSurfaceSwitchLatencies;
+
+    PlaybackSession() {
+        mStallDurations = new Histogram(STALL_BOUNDS_MS);
+        mSeekDurations = new Histogram(STALL_BOUNDS_MS);
+        mDroppedFrameBursts = new Histogram(DROPPED_FRAMES_BOUNDS);
+        mVideoBitrates = new Histogram(BITRATE_BOUNDS_KBPS);
+        mLiveOffsets = new Histogram(LIVE_OFFSET_BOUNDS_MS);
+        mSurfaceSwitchLatencies = new Histogram(SURFACE_SWITCH_BOUNDS_MS);
+    }
+
+    private PlaybackSession(PlaybackSession other) {
+        mMediaUri = other.mMediaUri;
+        mVideoDecoderName = other.mVideoDecoderName;
+        mAudioDecoderName = other.mAudioDecoderName;
+        mDecoderFallbackCount = other.mDecoderFallbackCount;
+        mStartupTimeMs = other.mStartupTimeMs;
+        mPlayingTimeMs = other.mPlayingTimeMs;
+        mStallTimeMs = other.mStallTimeMs;
+        mStallCount = other.mStallCount;
+        mDroppedFrames = other.mDroppedFrames;
+        mRenderedFrames = other.mRenderedFrames;
+        mBitrateSwitchCount = other.mBitrateSwitchCount;
+        mUpswitchCount = other.mUpswitchCount;
+        mDownswitchCount = other.mDownswitchCount;
+        mErrorCount = other.mErrorCount;
+        mSurfaceSwitchCount = other.mSurfaceSwitchCount;
+        mStallDurations = other.mStallDurations.copy();
+        mSeekDurations = other.mSeekDurations.copy();
+        mDroppedFrameBursts = other.mDroppedFrameBursts.copy();
+        mVideoBitrates = other.mVideoBitrates.copy();
+        mLiveOffsets = other.mLiveOffsets.copy();
+        mSurfaceSwitchLatencies = other.mSurfaceSwitchLatencies.copy();
+    }
+
+    /**
+     * Returns a copy that outlives the session. Sinks that keep sessions around must copy them,
+     * since the metrics reuse the same instance for the next session.
+     */
+    public PlaybackSession copy() {
+        return new PlaybackSession(this);
+    }
+
+    void reset() {
+        mMediaUri = null;
+        mVideoDecoderName = null;
+        mAudioDecoderName = null;
+        mDecoderFallbackCount = 0;
+        mStartupTimeMs = C.TIME_UNSET;
+        mPlayingTimeMs = 0;
+        mStallTimeMs = 0;
+        mStallCount = 0;
+        mDroppedFrames = 0;
+        mRenderedFrames = 0;
+        mBitrateSwitchCount = 0;
+        mUpswitchCount = 0;
+        mDownswitchCount = 0;
+        mErrorCount = 0;
+        mSurfaceSwitchCount = 0;
+        mStallDurations.reset();
+        mSeekDurations.reset();
+        mDroppedFrameBursts.reset();
+        mVideoBitrates.reset();
+        mLiveOffsets.reset();
+        mSurfaceSwitchLatencies.reset();
+    }
+
+    @Nullable
+    public String getMediaUri() {
+        return mMediaUri;
+    }
+
+    /**
+     * @return The name of the last video decoder used, or <code>null</code> if none was.
+     */
+    @Nullable
+    public String getVideoDecoderName() {
+        return mVideoDecoderName;
+    }
+
+    /**
+     * @return The name of the last audio decoder used, or <code>null</code> if none was.
+     */
+    @Nullable
+    public String getAudioDecoderName() {
+        return mAudioDecoderName;
+    }
+
+    /**
+     * @return Decoders that failed to initialize and were replaced by a later decoder in the order
+     * of the {@link RendererPolicy} that initialized. A failure that no decoder recovered from is
+     * reported as a playback error instead.
+     */
+    public int getDecoderFallbackCount() {
+        return mDecoderFallbackCount;
+    }
+
+    /**
+     * @return Time from setting the data source to the first rendered frame, or
+     * {@link C#TIME_UNSET} if no frame was rendered.
+     */
+    public long getStartupTimeMs() {
+        return mStartupTimeMs;
+    }
+
+    public long getPlayingTimeMs() {
+        return mPlayingTimeMs;
+    }
+
+    /**
+     * @return Time spent rebuffering after the first frame, not counting seeks.
+     */
+    public long getStallTimeMs() {
+        return mStallTimeMs;
+    }
+
+    public int getStallCount() {
+        return mStallCount;
+    }
+
+    /**
+     * @return Share of the watch time spent rebuffering, between 0 and 1.
+     */
+    public float getRebufferRatio() {
+        long watchTimeMs = mPlayingTimeMs + mStallTimeMs;
+        return watchTimeMs > 0 ? (float) mStallTimeMs / watchTimeMs : 0f;
+    }
+
+    public long getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    /**
+     * @return Frames rendered by video decoders that were released during the session.
+     */
+    public long getRenderedFrames() {
+        return mRenderedFrames;
+    }
+
+    /**
+     * @return Video format changes that changed the bitrate, not counting the initial format.
+     */
+    public int getBitrateSwitchCount() {
+        return mBitrateSwitchCount;
+    }
+
+    public int getUpswitchCount() {
+        return mUpswitchCount;
+    }
+
+    public int getDownswitchCount() {
+        return mDownswitchCount;
+    }
+
+    public int getErrorCount() {
+        return mErrorCount;
+    }
+
+    public Histogram getStallDurations() {
+        return mStallDurations;
+    }
+
+    /**
+     * @return Time from each seek until playback was ready again.
+     */
+    public Histogram getSeekDurations() {
+        return mSeekDurations;
+    }
+
+    /**
+     * @return Frames dropped per report of the video renderer.
+     */
+    public Histogram getDroppedFrameBursts() {
+        return mDroppedFrameBursts;
+    }
+
+    /**
+     * @return Bitrate of every video format that was rendered.
+     */
+    public Histogram getVideoBitrates() {
+        return mVideoBitrates;
+    }
+
+    /**
+     * @return Sampled distances to the live edge; empty for on-demand media.
+     */
+    public Histogram getLiveOffsets() {
+        return mLiveOffsets;
+    }
+
+    /**
+     * @return Switches of the surface during playback that were followed by a rendered frame.
+     */
+    public int getSurfaceSwitchCount() {
+        return mSurfaceSwitchCount;
+    }
+
+    /**
+     * @return Time from each switch of the surface during playback to the first frame rendered
+     * on the new one.
+     */
+    public Histogram getSurfaceSwitchLatencies() {
+        return mSurfaceSwitchLatencies;
+    }
+
+    /**
+     * Appends a single-line summary of the session.
+     */
+    public void appendTo(StringBuilder builder) {
+        builder.append("uri=").append(mMediaUri)
+                .append(" decoder=").append(mVideoDecoderName)
+                .append(" audioDecoder=").append(mAudioDecoderName)
+                .append(" decoderFallbacks=").append(mDecoderFallbackCount)
+                .append(" startupMs=")
+                .append(mStartupTimeMs == C.TIME_UNSET ? -1 : mStartupTimeMs)
+                .append(" playingMs=").append(mPlayingTimeMs)
+                .append(" stalls=").append(mStallCount)
+                .append(" stallMs=").append(mStallTimeMs)
+                .append(" rebufferRatio=").append(getRebufferRatio())
+                .append(" droppedFrames=").append(mDroppedFrames)
+                .append(" renderedFrames=").append(mRenderedFrames)
+                .append(" switches=").append(mBitrateSwitchCount)
+                .append(" up=").append(mUpswitchCount)
+                .append(" down=").append(mDownswitchCount)
+                .append(" errors=").append(mErrorCount)
+                .append(" stallDurations[");
+        mStallDurations.appendTo(builder);
+        builder.append("] seekDurations[");
+        mSeekDurations.appendTo(builder);
+        builder.append("] droppedBursts[");
+        mDroppedFrameBursts.appendTo(builder);
+        builder.append("] bitratesKbps[");
+        mVideoBitrates.appendTo(builder);
+        builder.append("]");
+        if (mLiveOffsets.getCount() > 0) {
+            builder.append(" liveOffsets[");
+            mLiveOffsets.appendTo(builder);
+            builder.append("]");
+        }
+        if (mSurfaceSwitchCount > 0) {
+            builder.append(" surfaceSwitches=").append(mSurfaceSwitchCount)
+                    .append(" surfaceSwitchMs[");
+            mSurfaceSwitchLatencies.appendTo(builder);
+            builder.append("]");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package cs.nzm.atvexo.player;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * System trace sections around playback milestones, so benchmarks and Perfetto traces can time
+ * them. Sections span activities, hence async sections, which are only available from API 29.
+ * Must be used from the main thread.
+ */
+public final class PlaybackTrace {
+
+    /**
+     * From the click on a card until the player renders the first frame of its video.
+     */
+    public static final String FIRST_FRAME = "ExoTV.firstFrame";
+
+    private static final int FIRST_FRAME_COOKIE = 0;
+
+    private static boolean sFirstFrameStarted;
+
+    private PlaybackTrace() {
+    }
+
+    public static void beginFirstFrame() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && !sFirstFrameStarted) {
+            sFirstFrameStarted = true;
+            Trace.beginAsyncSection(FIRST_FRAME, FIRST_FRAME_COOKIE);
+        }
+    }
+
+    public static void endFirstFrame() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && sFirstFrameStarted) {
+            sFirstFrameStarted = false;
+            Trace.endAsyncSection(FIRST_FRAME, FIRST_FRAME_COOKIE);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package cs.nzm.atvexo.player;
+
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DataSource} that serves requests from a {@link PreloadStore} when the requested
+ * resource was preloaded, and from an upstream {@link DataSource} otherwise.
+ */
+public final class PreloadDataSource implements DataSource {
+
+    /**
+     * {@link DataSource.Factory} for {@link PreloadDataSource} instances.
+     */
+    public static final class Factory implements DataSource.Factory {
+
+        private final PreloadStore mStore;
+        private final DataSource.Factory mUpstreamFactory;
+
+        public Factory(PreloadStore store, DataSource.Factory upstreamFactory) {
+            mStore = store;
+            mUpstreamFactory = upstreamFactory;
+        }
+
+        @Override
+        public PreloadDataSource createDataSource() {
+            return new PreloadDataSource(mStore, mUpstreamFactory.createDataSource());
+        }
+    }
+
+    private final PreloadStore mStore;
+    private final DataSource mUpstream;
+    @Nullable private PreloadStore.Entry mEntry;
+    private int mReadPosition;
+    private int mBytesRemaining;
+
+    public PreloadDataSource(PreloadStore store, DataSource upstream) {
+        mStore = store;
+        mUpstream = upstream;
+    }
+
+    @Override
+    public void addTransferListener(TransferListener transferListener) {
+        mUpstream.addTransferListener(transferListener);
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+        PreloadStore.Entry entry = dataSpec.httpMethod == DataSpec.HTTP_METHOD_GET
+                ? mStore.get(dataSpec.uri) : null;
+        if (entry == null || dataSpec.position > entry.mData.length) {
+            return mUpstream.open(dataSpec);
+        }
+        mEntry = entry;
+        mReadPosition = (int) dataSpec.position;
+        int available = entry.mData.length - mReadPosition;
+        mBytesRemaining = dataSpec.length == C.LENGTH_UNSET
+                ? available : (int) Math.min(available, dataSpec.length);
+        return mBytesRemaining;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (mEntry == null) {
+            return mUpstream.read(buffer, offset, length);
+        }
+        if (length == 0) {
+            return 0;
+        }
+        if (mBytesRemaining == 0) {
+            return C.RESULT_END_OF_INPUT;
+        }
+        int bytesToRead = Math.min(length, mBytesRemaining);
+        System.arraycopy(mEntry.mData, mReadPosition, buffer, offset, bytesToRead);
+        mReadPosition += bytesToRead;
+        mBytesRemaining -= bytesToRead;
+        return bytesToRead;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return mEntry != null ? mEntry.mResolvedUri : mUpstream.getUri();
+    }
+
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return mEntry != null ? Collections.emptyMap() : mUpstream.getResponseHeaders();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mEntry != null) {
+            mEntry = null;
+            return;
+        }
+        mUpstream.close();
+    }
+}
@@ -0,0 +1,99 @@
+package cs.nzm.atvexo.player;
+
+import android.net.Uri;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory store for bytes fetched ahead of playback by the {@link StreamPreloader}. Entries are
+ * keyed by the request URI and evicted in least-recently-used order once the total size exceeds
+ * the byte budget. All methods are thread safe.
+ */
+public final class PreloadStore {
+
+    private final LinkedHashMap<String, Entry> mEntries =
+            new LinkedHashMap<>(16, 0.75f, /* accessOrder= */ true);
+    private long mMaxBytes;
+    private long mSizeBytes;
+
+    public PreloadStore(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    public synchronized Entry get(Uri uri) {
+        return mEntries.get(uri.toString());
+    }
+
+    public synchronized boolean contains(Uri uri) {
+        return mEntries.containsKey(uri.toString());
+    }
+
+    /**
+     * Stores the bytes of a fully fetched resource. Resources larger than the whole budget are
+     * dropped.
+     *
+     * @param uri The URI the resource was requested with.
+     * @param resolvedUri The URI the resource was finally served from, after redirects.
+     * @param data The resource bytes.
+     */
+    public synchronized void put(Uri uri, Uri resolvedUri, byte[] data) {
+        if (data.length > mMaxBytes) {
+            return;
+        }
+        Entry previous = mEntries.put(uri.toString(), new Entry(resolvedUri, data));
+        if (previous != null) {
+            mSizeBytes -= previous.mData.length;
+        }
+        mSizeBytes += data.length;
+        trimToSize(mMaxBytes);
+    }
+
+    public synchronized long getSizeBytes() {
+        return mSizeBytes;
+    }
+
+    public synchronized long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        mMaxBytes = maxBytes;
+        trimToSize(mMaxBytes);
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+        mSizeBytes = 0;
+    }
+
+    private void trimToSize(long maxBytes) {
+        Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mSizeBytes > maxBytes && iterator.hasNext()) {
+            mSizeBytes -= iterator.next().getValue().mData.length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * A preloaded resource.
+     */
+    public static final class Entry {
+        final Uri mResolvedUri;
+        final byte[] mData;
+
+        Entry(Uri resolvedUri, byte[] data) {
+            mResolvedUri = resolvedUri;
+            mData = data;
+        }
+
+        public Uri getResolvedUri() {
+            return mResolvedUri;
+        }
+
+        public int getLength() {
+            return mData.length;
+        }
+    }
+}
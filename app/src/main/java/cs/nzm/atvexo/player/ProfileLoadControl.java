@@ -0,0 +1,121 @@
+package cs.nzm.atvexo.player;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.DefaultLoadControl;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.ExoTrackSelection;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+
+/**
+ * {@link LoadControl} whose {@link BufferProfile} can be swapped while the player is alive.
+ *
+ * <p>A player takes its load control once, when it is built, so pooled players could otherwise
+ * never change their buffering. This class delegates to a {@link DefaultLoadControl} built for the
+ * current profile; switching profiles builds a new delegate on the same allocator, so the media
+ * that is already buffered survives the switch, and replays the last track selection to it so its
+ * byte budget is known straight away.
+ *
+ * <p>Profiles are set on the main thread while the player calls into this class from its playback
+ * thread, hence the synchronization.
+ */
+final class ProfileLoadControl implements LoadControl {
+
+    private final DefaultAllocator mAllocator =
+            new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+    private BufferProfile mProfile;
+    private DefaultLoadControl mDelegate;
+    @Nullable private Renderer[] mRenderers;
+    @Nullable private TrackGroupArray mTrackGroups;
+    @Nullable private ExoTrackSelection[] mTrackSelections;
+
+    ProfileLoadControl(BufferProfile profile) {
+        mProfile = profile;
+        mDelegate = profile.createLoadControl(mAllocator);
+    }
+
+    synchronized BufferProfile getProfile() {
+        return mProfile;
+    }
+
+    /**
+     * Switches to the given profile. Takes effect on the next buffering decision of the player.
+     */
+    synchronized void setProfile(BufferProfile profile) {
+        if (profile == mProfile) {
+            return;
+        }
+        mProfile = profile;
+        mDelegate = profile.createLoadControl(mAllocator);
+        if (mRenderers != null) {
+            mDelegate.onTracksSelected(mRenderers, mTrackGroups, mTrackSelections);
+        }
+    }
+
+    @Override
+    public synchronized void onPrepared() {
+        mDelegate.onPrepared();
+    }
+
+    @Override
+    public synchronized void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups,
+                                              ExoTrackSelection[] trackSelections) {
+        mRenderers = renderers;
+        mTrackGroups = trackGroups;
+        mTrackSelections = trackSelections;
+        mDelegate.onTracksSelected(renderers, trackGroups, trackSelections);
+    }
+
+    @Override
+    public synchronized void onStopped() {
+        clearTrackSelection();
+        mDelegate.onStopped();
+    }
+
+    @Override
+    public synchronized void onReleased() {
+        clearTrackSelection();
+        mDelegate.onReleased();
+    }
+
+    @Override
+    public Allocator getAllocator() {
+        return mAllocator;
+    }
+
+    @Override
+    public synchronized long getBackBufferDurationUs() {
+        return mDelegate.getBackBufferDurationUs();
+    }
+
+    @Override
+    public synchronized boolean retainBackBufferFromKeyframe() {
+        return mDelegate.retainBackBufferFromKeyframe();
+    }
+
+    @Override
+    public synchronized boolean shouldContinueLoading(long playbackPositionUs,
+                                                      long bufferedDurationUs,
+                                                      float playbackSpeed) {
+        return mDelegate.shouldContinueLoading(playbackPositionUs, bufferedDurationUs,
+                playbackSpeed);
+    }
+
+    @Override
+    public synchronized boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed,
+                                                    boolean rebuffering,
+                                                    long targetLiveOffsetUs) {
+        return mDelegate.shouldStartPlayback(bufferedDurationUs, playbackSpeed, rebuffering,
+                targetLiveOffsetUs);
+    }
+
+    private void clearTrackSelection() {
+        mRenderers = null;
+        mTrackGroups = null;
+        mTrackSelections = null;
+    }
+}
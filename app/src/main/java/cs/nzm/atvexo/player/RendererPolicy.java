@@ -0,0 +1,187 @@
+package cs.nzm.atvexo.player;
+
+import android.content.Context;
+
+import com.google.android.exoplayer2.DefaultRenderersFactory;
+import com.google.android.exoplayer2.mediacodec.MediaCodecInfo;
+import com.google.android.exoplayer2.mediacodec.MediaCodecSelector;
+import com.google.android.exoplayer2.mediacodec.MediaCodecUtil;
+import com.google.android.exoplayer2.trackselection.DefaultTrackSelector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes how players pick and run their decoders. Use one of the presets, or a
+ * {@link Builder} to tune a policy for a specific device, and apply it with
+ * {@link ExoPlayerPool#setRendererPolicy(RendererPolicy)}.
+ *
+ * <p>Decoders are ordered by a {@link DecoderRanker}. When the first one fails to initialize, the
+ * renderer falls back to the next one instead of failing playback. The decoders that were used
+ * are reported in the {@link PlaybackSession}, along with the number of fallbacks.
+ */
+public final class RendererPolicy {
+
+    /**
+     * Prefers hardware decoders and falls back on failure, without tunneling.
+     */
+    public static final RendererPolicy DEFAULT = new Builder().build();
+
+    /**
+     * Like {@link #DEFAULT}, but tunnels playback on devices that support it, which leaves
+     * audio-video sync to the TV's SoC.
+     */
+    public static final RendererPolicy TUNNELED = new Builder().setTunnelingEnabled(true).build();
+
+    public final boolean preferHardwareDecoders;
+    public final boolean decoderFallbackEnabled;
+    /**
+     * Prefixes of the names of decoders to try last, for decoders known to misbehave.
+     */
+    public final List<String> excludedDecoderPrefixes;
+    @DefaultRenderersFactory.ExtensionRendererMode
+    public final int extensionRendererMode;
+    /**
+     * Whether playback is tunneled when the selected audio and video renderers both support it.
+     * A tunneled decoder can't render into the player's placeholder surface, so before API 29
+     * it is released along with its surface, see {@link VideoSurfaceManager}.
+     */
+    public final boolean tunnelingEnabled;
+
+    private RendererPolicy(Builder builder) {
+        preferHardwareDecoders = builder.mPreferHardwareDecoders;
+        decoderFallbackEnabled = builder.mDecoderFallbackEnabled;
+        excludedDecoderPrefixes = Collections.unmodifiableList(
+                new ArrayList<>(builder.mExcludedDecoderPrefixes));
+        extensionRendererMode = builder.mExtensionRendererMode;
+        tunnelingEnabled = builder.mTunnelingEnabled;
+    }
+
+    public Builder buildUpon() {
+        return new Builder()
+                .setPreferHardwareDecoders(preferHardwareDecoders)
+                .setDecoderFallbackEnabled(decoderFallbackEnabled)
+                .setExcludedDecoderPrefixes(excludedDecoderPrefixes)
+                .setExtensionRendererMode(extensionRendererMode)
+                .setTunnelingEnabled(tunnelingEnabled);
+    }
+
+    /**
+     * Builds the renderers factory of a player following this policy.
+     */
+    DefaultRenderersFactory createRenderersFactory(Context context) {
+        return new DefaultRenderersFactory(context)
+                .setMediaCodecSelector(new RankingMediaCodecSelector(
+                        new DecoderRanker(preferHardwareDecoders, excludedDecoderPrefixes)))
+                .setEnableDecoderFallback(decoderFallbackEnabled)
+                .setExtensionRendererMode(extensionRendererMode);
+    }
+
+    /**
+     * Returns the default track selection parameters of a player following this policy.
+     */
+    DefaultTrackSelector.Parameters createTrackSelectionParameters(Context context) {
+        return DefaultTrackSelector.Parameters.getDefaults(context).buildUpon()
+                .setTunnelingEnabled(tunnelingEnabled)
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return "RendererPolicy{preferHardware=" + preferHardwareDecoders
+                + ", fallback=" + decoderFallbackEnabled
+                + ", excluded=" + excludedDecoderPrefixes
+                + ", extensions=" + extensionRendererMode
+                + ", tunneling=" + tunnelingEnabled + "}";
+    }
+
+    /**
+     * Orders the decoders of {@link MediaCodecSelector#DEFAULT} with a {@link DecoderRanker}.
+     */
+    static final class RankingMediaCodecSelector implements MediaCodecSelector {
+        private final DecoderRanker mRanker;
+
+        RankingMediaCodecSelector(DecoderRanker ranker) {
+            mRanker = ranker;
+        }
+
+        @Override
+        public List<MediaCodecInfo> getDecoderInfos(String mimeType, boolean requiresSecureDecoder,
+                                                    boolean requiresTunnelingDecoder)
+                throws MediaCodecUtil.DecoderQueryException {
+            List<MediaCodecInfo> infos = MediaCodecSelector.DEFAULT.getDecoderInfos(
+                    mimeType, requiresSecureDecoder, requiresTunnelingDecoder);
+            List<DecoderRanker.Decoder> decoders = new ArrayList<>(infos.size());
+            for (MediaCodecInfo info : infos) {
+                decoders.add(new DecoderRanker.Decoder(info.name, info.hardwareAccelerated,
+                        info.softwareOnly, info.vendor));
+            }
+            int[] order = mRanker.rank(decoders);
+            List<MediaCodecInfo> ranked = new ArrayList<>(order.length);
+            for (int position : order) {
+                ranked.add(infos.get(position));
+            }
+            return ranked;
+        }
+    }
+
+    /**
+     * Builds {@link RendererPolicy} instances. Defaults match {@link #DEFAULT}.
+     */
+    public static final class Builder {
+        private boolean mPreferHardwareDecoders = true;
+        private boolean mDecoderFallbackEnabled = true;
+        private List<String> mExcludedDecoderPrefixes = Collections.emptyList();
+        @DefaultRenderersFactory.ExtensionRendererMode
+        private int mExtensionRendererMode = DefaultRenderersFactory.EXTENSION_RENDERER_MODE_ON;
+        private boolean mTunnelingEnabled;
+
+        public Builder setPreferHardwareDecoders(boolean preferHardwareDecoders) {
+            mPreferHardwareDecoders = preferHardwareDecoders;
+            return this;
+        }
+
+        /**
+         * @see DefaultRenderersFactory#setEnableDecoderFallback(boolean)
+         */
+        public Builder setDecoderFallbackEnabled(boolean decoderFallbackEnabled) {
+            mDecoderFallbackEnabled = decoderFallbackEnabled;
+            return this;
+        }
+
+        public Builder setExcludedDecoderPrefixes(List<String> excludedDecoderPrefixes) {
+            mExcludedDecoderPrefixes = excludedDecoderPrefixes;
+            return this;
+        }
+
+        public Builder setExcludedDecoderPrefixes(String... excludedDecoderPrefixes) {
+            return setExcludedDecoderPrefixes(Arrays.asList(excludedDecoderPrefixes));
+        }
+
+        /**
+         * Sets whether extension decoders, when bundled, are used: not at all, after the platform
+         * decoders (the default) or before them.
+         *
+         * @see DefaultRenderersFactory#setExtensionRendererMode(int)
+         */
+        public Builder setExtensionRendererMode(
+                @DefaultRenderersFactory.ExtensionRendererMode int extensionRendererMode) {
+            mExtensionRendererMode = extensionRendererMode;
+            return this;
+        }
+
+        /**
+         * @see DefaultTrackSelector.Parameters.Builder#setTunnelingEnabled(boolean)
+         */
+        public Builder setTunnelingEnabled(boolean tunnelingEnabled) {
+            mTunnelingEnabled = tunnelingEnabled;
+            return this;
+        }
+
+        public RendererPolicy build() {
+            return new RendererPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package cs.nzm.atvexo.player;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Build;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.util.Util;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Fallback {@link ThumbnailSource} that decodes frames with a single
+ * {@link MediaMetadataRetriever} kept open for the whole session, instead of opening the video
+ * again for every thumbnail.
+ */
+final class RetrieverThumbnailSource implements ThumbnailSource {
+
+    private final MediaMetadataRetriever mRetriever = new MediaMetadataRetriever();
+    private boolean mReleased;
+
+    RetrieverThumbnailSource(Context context, String videoUrl) {
+        setRetrieverDataSource(context, mRetriever, videoUrl);
+    }
+
+    /**
+     * Points the retriever at the video. Progressive videos are read through the
+     * {@link MediaCache}, so thumbnails and playback share the same cached bytes; streams with a
+     * manifest have to be opened by URL.
+     */
+    static void setRetrieverDataSource(Context context, MediaMetadataRetriever retriever,
+                                       String videoUrl) {
+        Uri uri = Uri.parse(videoUrl);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                && Util.inferContentType(uri) == C.CONTENT_TYPE_OTHER) {
+            retriever.setDataSource(new DataSourceMediaDataSource(
+                    PlaybackDataSources.getUpstreamFactory(context), uri));
+        } else {
+            retriever.setDataSource(videoUrl, new HashMap<>());
+        }
+    }
+
+    @Nullable
+    @Override
+    public synchronized Bitmap getThumbnail(long positionMs, int maxWidth, int maxHeight) {
+        if (mReleased) {
+            return null;
+        }
+        return getFrame(mRetriever, positionMs * 1000, maxWidth, maxHeight);
+    }
+
+    /**
+     * Decodes the sync frame closest to the given time, at a reduced size where the platform
+     * supports it.
+     */
+    static Bitmap getFrame(MediaMetadataRetriever retriever, long timeUs, int maxWidth,
+                           int maxHeight) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            return retriever.getScaledFrameAtTime(timeUs,
+                    MediaMetadataRetriever.OPTION_CLOSEST_SYNC, maxWidth, maxHeight);
+        }
+        return retriever.getFrameAtTime(timeUs, MediaMetadataRetriever.OPTION_CLOSEST_SYNC);
+    }
+
+    @Override
+    public synchronized void release() {
+        mReleased = true;
+        try {
+            mRetriever.release();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
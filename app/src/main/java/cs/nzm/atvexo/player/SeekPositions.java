@@ -0,0 +1,23 @@
+package cs.nzm.atvexo.player;
+
+/**
+ * Builds the table of seek positions shown by the seek row. Kept free of Android dependencies so
+ * it can be benchmarked on the JVM.
+ */
+public final class SeekPositions {
+
+    private SeekPositions() {
+    }
+
+    /**
+     * @return Positions from 0 up to the duration, one every interval, both in milliseconds.
+     */
+    public static long[] compute(long durationMs, long intervalMs) {
+        int size = (int) (durationMs / intervalMs) + 1;
+        long[] seekPositions = new long[size];
+        for (int i = 0; i < size; i++) {
+            seekPositions[i] = i * intervalMs;
+        }
+        return seekPositions;
+    }
+}
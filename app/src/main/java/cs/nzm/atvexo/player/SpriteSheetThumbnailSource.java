@@ -0,0 +1,187 @@
+package cs.nzm.atvexo.player;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Rect;
+import android.net.Uri;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSourceInputStream;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.util.UriUtil;
+import com.google.android.exoplayer2.util.Util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link ThumbnailSource} backed by a WebVTT thumbnail track whose cues point at regions of
+ * sprite-sheet images, e.g. <code>sheet_01.jpg#xywh=0,0,160,90</code>. Only the most recently
+ * used sheet is kept decoded, and its memory is reused for the next sheet.
+ */
+final class SpriteSheetThumbnailSource implements ThumbnailSource {
+
+    private static final Pattern CUE_TIMING = Pattern.compile(
+            "^((?:\\d+:)?\\d{2}:\\d{2}\\.\\d{3})\\s+-->\\s+((?:\\d+:)?\\d{2}:\\d{2}\\.\\d{3})");
+    private static final Pattern SPATIAL_FRAGMENT = Pattern.compile(
+            "#xywh=(?:pixel:)?(\\d+),(\\d+),(\\d+),(\\d+)$");
+
+    private final DataSource.Factory mDataSourceFactory;
+    private final long[] mCueStartsMs;
+    private final Uri[] mSheetUris;
+    private final Rect[] mRegions;
+
+    @Nullable private Uri mDecodedSheetUri;
+    @Nullable private Bitmap mDecodedSheet;
+    private boolean mReleased;
+
+    private SpriteSheetThumbnailSource(DataSource.Factory dataSourceFactory, long[] cueStartsMs,
+                                       Uri[] sheetUris, Rect[] regions) {
+        mDataSourceFactory = dataSourceFactory;
+        mCueStartsMs = cueStartsMs;
+        mSheetUris = sheetUris;
+        mRegions = regions;
+    }
+
+    /**
+     * Reads and parses the WebVTT thumbnail track.
+     *
+     * @return The source, or <code>null</code> if the track has no sprite cues.
+     */
+    @Nullable
+    static SpriteSheetThumbnailSource open(DataSource.Factory dataSourceFactory, Uri vttUri)
+            throws IOException {
+        List<Long> starts = new ArrayList<>();
+        List<Uri> sheets = new ArrayList<>();
+        List<Rect> regions = new ArrayList<>();
+        InputStream inputStream = new DataSourceInputStream(
+                dataSourceFactory.createDataSource(), new DataSpec(vttUri));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream))) {
+            String line;
+            long cueStartMs = -1;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                Matcher timing = CUE_TIMING.matcher(line);
+                if (timing.find()) {
+                    cueStartMs = parseTimestampMs(timing.group(1));
+                    continue;
+                }
+                if (cueStartMs < 0 || line.isEmpty()) {
+                    continue;
+                }
+                Matcher fragment = SPATIAL_FRAGMENT.matcher(line);
+                if (fragment.find()) {
+                    int x = Integer.parseInt(fragment.group(1));
+                    int y = Integer.parseInt(fragment.group(2));
+                    int w = Integer.parseInt(fragment.group(3));
+                    int h = Integer.parseInt(fragment.group(4));
+                    String sheet = line.substring(0, fragment.start());
+                    starts.add(cueStartMs);
+                    sheets.add(UriUtil.resolveToUri(vttUri.toString(), sheet));
+                    regions.add(new Rect(x, y, x + w, y + h));
+                }
+                cueStartMs = -1;
+            }
+        }
+        if (starts.isEmpty()) {
+            return null;
+        }
+        long[] cueStartsMs = new long[starts.size()];
+        for (int i = 0; i < cueStartsMs.length; i++) {
+            cueStartsMs[i] = starts.get(i);
+        }
+        return new SpriteSheetThumbnailSource(dataSourceFactory, cueStartsMs,
+                sheets.toArray(new Uri[0]), regions.toArray(new Rect[0]));
+    }
+
+    private static long parseTimestampMs(String timestamp) {
+        String[] parts = Util.split(timestamp, "[:.]");
+        long value = 0;
+        for (int i = 0; i < parts.length - 1; i++) {
+            value = value * 60 + Long.parseLong(parts[i]);
+        }
+        return value * 1000 + Long.parseLong(parts[parts.length - 1]);
+    }
+
+    @Nullable
+    @Override
+    public synchronized Bitmap getThumbnail(long positionMs, int maxWidth, int maxHeight)
+            throws IOException {
+        if (mReleased) {
+            return null;
+        }
+        int index = Arrays.binarySearch(mCueStartsMs, positionMs);
+        if (index < 0) {
+            index = Math.max(0, -index - 2);
+        }
+        Bitmap sheet = getSheet(mSheetUris[index]);
+        if (sheet == null) {
+            return null;
+        }
+        Rect region = new Rect(mRegions[index]);
+        if (!region.intersect(0, 0, sheet.getWidth(), sheet.getHeight())) {
+            return null;
+        }
+        if (region.width() == sheet.getWidth() && region.height() == sheet.getHeight()) {
+            // createBitmap would hand back the sheet itself, which is reused on the next switch.
+            return sheet.copy(sheet.getConfig(), false);
+        }
+        return Bitmap.createBitmap(sheet, region.left, region.top, region.width(),
+                region.height());
+    }
+
+    /**
+     * Returns the decoded sheet. Sheets of a track normally share their dimensions, so the
+     * previous sheet's memory is reused for the next one.
+     */
+    @Nullable
+    private Bitmap getSheet(Uri sheetUri) throws IOException {
+        if (sheetUri.equals(mDecodedSheetUri)) {
+            return mDecodedSheet;
+        }
+        mDecodedSheetUri = null;
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inMutable = true;
+        options.inBitmap = mDecodedSheet;
+        Bitmap sheet;
+        try {
+            sheet = decodeSheet(sheetUri, options);
+        } catch (IllegalArgumentException e) {
+            // The previous sheet can't hold this one.
+            options.inBitmap = null;
+            sheet = decodeSheet(sheetUri, options);
+        }
+        if (mDecodedSheet != null && sheet != mDecodedSheet) {
+            mDecodedSheet.recycle();
+        }
+        mDecodedSheet = sheet;
+        mDecodedSheetUri = sheet != null ? sheetUri : null;
+        return sheet;
+    }
+
+    private Bitmap decodeSheet(Uri sheetUri, BitmapFactory.Options options) throws IOException {
+        try (InputStream inputStream = new DataSourceInputStream(
+                mDataSourceFactory.createDataSource(), new DataSpec(sheetUri))) {
+            return BitmapFactory.decodeStream(inputStream, null, options);
+        }
+    }
+
+    @Override
+    public synchronized void release() {
+        mReleased = true;
+        if (mDecodedSheet != null) {
+            mDecodedSheet.recycle();
+            mDecodedSheet = null;
+            mDecodedSheetUri = null;
+        }
+    }
+}
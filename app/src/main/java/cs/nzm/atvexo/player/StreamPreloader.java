@@ -0,0 +1,271 @@
+package cs.nzm.atvexo.player;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.source.hls.playlist.HlsMediaPlaylist;
+import com.google.android.exoplayer2.source.hls.playlist.HlsMultivariantPlaylist;
+import com.google.android.exoplayer2.source.hls.playlist.HlsPlaylist;
+import com.google.android.exoplayer2.source.hls.playlist.HlsPlaylistParser;
+import com.google.android.exoplayer2.upstream.BandwidthMeter;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer2.util.UriUtil;
+import com.google.android.exoplayer2.util.Util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fetches the manifests and the first media segments of an HLS stream in the background, so that
+ * playback of the card the user is focusing can start without a cold network round trip. The
+ * fetched bytes are kept in a {@link PreloadStore} with a bounded byte budget and are served to
+ * the player by a {@link PreloadDataSource}.
+ *
+ * <p>Requests are debounced while focus moves, and a new request cancels the one in flight.
+ * {@link #preload(Uri)} and {@link #cancel()} must be called from the main thread.
+ */
+public final class StreamPreloader {
+
+    private static final String TAG = "StreamPreloader";
+
+    public static final long DEFAULT_DEBOUNCE_MS = 400;
+    public static final int DEFAULT_SEGMENT_COUNT = 2;
+    public static final long DEFAULT_BUDGET_BYTES = 16 * 1024 * 1024;
+    public static final long LOW_RAM_BUDGET_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * Mirrors the bandwidth fraction the default adaptive track selection uses, so that the
+     * preloaded variant is the one the player will most likely start with.
+     */
+    private static final float BANDWIDTH_FRACTION = 0.7f;
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+    private static StreamPreloader sInstance;
+
+    private final PreloadStore mStore;
+    private final DataSource.Factory mUpstreamFactory;
+    private final BandwidthMeter mBandwidthMeter;
+    private final ExecutorService mExecutor;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private long mDebounceMs = DEFAULT_DEBOUNCE_MS;
+    private volatile int mSegmentCount = DEFAULT_SEGMENT_COUNT;
+    @Nullable private Uri mPendingUri;
+    @Nullable private Future<?> mCurrentTask;
+
+    private final Runnable mStartRunnable = new Runnable() {
+        @Override
+        public void run() {
+            start(mPendingUri);
+        }
+    };
+
+    /**
+     * Returns the process-wide preloader, creating it on first use.
+     */
+    public static synchronized StreamPreloader getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            ActivityManager activityManager =
+                    (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+            long budgetBytes = activityManager.isLowRamDevice()
+                    ? LOW_RAM_BUDGET_BYTES : DEFAULT_BUDGET_BYTES;
+            sInstance = new StreamPreloader(new PreloadStore(budgetBytes),
+                    PlaybackDataSources.getUpstreamFactory(appContext),
+                    DefaultBandwidthMeter.getSingletonInstance(appContext),
+                    Executors.newSingleThreadExecutor());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Creates a preloader with explicit collaborators, for example an upstream factory that
+     * points at a local HTTP server serving fixtures.
+     */
+    StreamPreloader(PreloadStore store, DataSource.Factory upstreamFactory,
+                    BandwidthMeter bandwidthMeter, ExecutorService executor) {
+        mStore = store;
+        mUpstreamFactory = upstreamFactory;
+        mBandwidthMeter = bandwidthMeter;
+        mExecutor = executor;
+    }
+
+    public PreloadStore getStore() {
+        return mStore;
+    }
+
+    public void setDebounceMs(long debounceMs) {
+        mDebounceMs = debounceMs;
+    }
+
+    /**
+     * Sets how many media segments are fetched after the media playlist.
+     */
+    public void setSegmentCount(int segmentCount) {
+        mSegmentCount = segmentCount;
+    }
+
+    /**
+     * Preloads the stream at the given URI once focus has settled on it. Work for any previously
+     * requested stream is cancelled. Only HLS streams are preloaded.
+     */
+    public void preload(Uri uri) {
+        if (uri.equals(mPendingUri)) {
+            return;
+        }
+        cancel();
+        if (Util.inferContentType(uri) != C.CONTENT_TYPE_HLS) {
+            return;
+        }
+        mPendingUri = uri;
+        mHandler.postDelayed(mStartRunnable, mDebounceMs);
+    }
+
+    /**
+     * Cancels the pending and the in-flight preload, if any. Bytes that were already fetched are
+     * kept.
+     */
+    public void cancel() {
+        mHandler.removeCallbacks(mStartRunnable);
+        mPendingUri = null;
+        if (mCurrentTask != null) {
+            mCurrentTask.cancel(true);
+            mCurrentTask = null;
+        }
+    }
+
+    private void start(final Uri uri) {
+        mCurrentTask = mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    preloadHls(uri);
+                } catch (InterruptedIOException e) {
+                    // Cancelled because focus moved on.
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to preload " + uri, e);
+                }
+            }
+        });
+    }
+
+    void preloadHls(Uri uri) throws IOException {
+        HlsPlaylistParser parser = new HlsPlaylistParser();
+        PreloadStore.Entry entry = getOrFetch(uri);
+        HlsPlaylist playlist = parser.parse(entry.mResolvedUri,
+                new ByteArrayInputStream(entry.mData));
+        if (playlist instanceof HlsMultivariantPlaylist) {
+            Uri variantUri = selectVariant((HlsMultivariantPlaylist) playlist);
+            if (variantUri == null) {
+                return;
+            }
+            entry = getOrFetch(variantUri);
+            playlist = parser.parse(entry.mResolvedUri, new ByteArrayInputStream(entry.mData));
+        }
+        if (!(playlist instanceof HlsMediaPlaylist)) {
+            return;
+        }
+        HlsMediaPlaylist mediaPlaylist = (HlsMediaPlaylist) playlist;
+        if (!mediaPlaylist.hasEndTag) {
+            // Segments of a live playlist go stale before the user gets to play them.
+            return;
+        }
+        int segmentCount = Math.min(mSegmentCount, mediaPlaylist.segments.size());
+        for (int i = 0; i < segmentCount; i++) {
+            HlsMediaPlaylist.Segment segment = mediaPlaylist.segments.get(i);
+            if (segment.byteRangeLength != C.LENGTH_UNSET) {
+                // Sub-range requests can't be told apart by URI alone.
+                return;
+            }
+            HlsMediaPlaylist.Segment initSegment = segment.initializationSegment;
+            if (initSegment != null && initSegment.byteRangeLength == C.LENGTH_UNSET) {
+                getOrFetch(UriUtil.resolveToUri(mediaPlaylist.baseUri, initSegment.url));
+            }
+            getOrFetch(UriUtil.resolveToUri(mediaPlaylist.baseUri, segment.url));
+        }
+    }
+
+    /**
+     * Picks the variant the default adaptive track selection would start with given the current
+     * bandwidth estimate, ignoring trick-play variants.
+     */
+    @Nullable
+    private Uri selectVariant(HlsMultivariantPlaylist playlist) {
+        long allowedBitrate = (long) (mBandwidthMeter.getBitrateEstimate() * BANDWIDTH_FRACTION);
+        HlsMultivariantPlaylist.Variant selected = null;
+        HlsMultivariantPlaylist.Variant lowest = null;
+        for (HlsMultivariantPlaylist.Variant variant : playlist.variants) {
+            if ((variant.format.roleFlags & C.ROLE_FLAG_TRICK_PLAY) != 0) {
+                continue;
+            }
+            int bitrate = variant.format.bitrate;
+            if (lowest == null || bitrate < lowest.format.bitrate) {
+                lowest = variant;
+            }
+            if (bitrate <= allowedBitrate
+                    && (selected == null || bitrate > selected.format.bitrate)) {
+                selected = variant;
+            }
+        }
+        if (selected == null) {
+            selected = lowest;
+        }
+        return selected != null ? selected.url : null;
+    }
+
+    /**
+     * Returns the stored resource, fetching it if it isn't stored. A preload that was cancelled
+     * part way thus picks up where it stopped, and one that completed costs no request.
+     */
+    private PreloadStore.Entry getOrFetch(Uri uri) throws IOException {
+        PreloadStore.Entry entry = mStore.get(uri);
+        return entry != null ? entry : fetch(uri);
+    }
+
+    /**
+     * Reads a resource fully and stores it.
+     *
+     * @throws InterruptedIOException If the preload was cancelled while reading.
+     */
+    private PreloadStore.Entry fetch(Uri uri) throws IOException {
+        DataSource dataSource = mUpstreamFactory.createDataSource();
+        try {
+            dataSource.open(new DataSpec(uri));
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            int read;
+            while ((read = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException();
+                }
+                output.write(buffer, 0, read);
+                if (output.size() > mStore.getMaxBytes()) {
+                    throw new IOException("Resource exceeds the preload budget: " + uri);
+                }
+            }
+            Uri resolvedUri = dataSource.getUri() != null ? dataSource.getUri() : uri;
+            PreloadStore.Entry entry = new PreloadStore.Entry(resolvedUri, output.toByteArray());
+            mStore.put(uri, resolvedUri, entry.mData);
+            return entry;
+        } finally {
+            try {
+                dataSource.close();
+            } catch (IOException e) {
+                // Nothing left to read.
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package cs.nzm.atvexo.player;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Keeps thumbnails evicted from the {@link ThumbnailCache} so their memory can be reused for the
+ * next thumbnail of the same size instead of being left to the garbage collector. Bitmaps must
+ * only be put here once nothing shows them any more. All methods are thread safe.
+ */
+public final class ThumbnailBitmapPool {
+
+    private static final Bitmap.Config CONFIG = Bitmap.Config.RGB_565;
+
+    private final ArrayDeque<Bitmap> mBitmaps = new ArrayDeque<>();
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final long mMaxBytes;
+    private long mSizeBytes;
+
+    public ThumbnailBitmapPool(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a mutable bitmap of the given size, reusing a pooled one when possible.
+     */
+    public Bitmap get(int width, int height) {
+        synchronized (this) {
+            Iterator<Bitmap> iterator = mBitmaps.iterator();
+            while (iterator.hasNext()) {
+                Bitmap bitmap = iterator.next();
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    iterator.remove();
+                    mSizeBytes -= bitmap.getAllocationByteCount();
+                    bitmap.eraseColor(Color.BLACK);
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, CONFIG);
+    }
+
+    /**
+     * Offers a bitmap for reuse. The caller must not use the bitmap afterwards.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() != CONFIG
+                || bitmap.getAllocationByteCount() > mMaxBytes) {
+            return;
+        }
+        mBitmaps.addFirst(bitmap);
+        mSizeBytes += bitmap.getAllocationByteCount();
+        while (mSizeBytes > mMaxBytes) {
+            mSizeBytes -= mBitmaps.pollLast().getAllocationByteCount();
+        }
+    }
+
+    public synchronized void clear() {
+        mBitmaps.clear();
+        mSizeBytes = 0;
+    }
+
+    /**
+     * Downsamples a decoded frame so that it fits into the given bounds, keeping its aspect ratio.
+     * The frame is recycled when a scaled copy is returned.
+     */
+    public Bitmap scale(Bitmap frame, int maxWidth, int maxHeight) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (width <= maxWidth && height <= maxHeight) {
+            return frame;
+        }
+        float scale = Math.min((float) maxWidth / width, (float) maxHeight / height);
+        int targetWidth = Math.max(1, Math.round(width * scale));
+        int targetHeight = Math.max(1, Math.round(height * scale));
+        Bitmap target = get(targetWidth, targetHeight);
+        new Canvas(target).drawBitmap(frame, null,
+                new Rect(0, 0, targetWidth, targetHeight), mPaint);
+        frame.recycle();
+        return target;
+    }
+}
@@ -0,0 +1,142 @@
+package cs.nzm.atvexo.player;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayDeque;
+
+/**
+ * Process-wide cache of downsampled seek thumbnails keyed by video URL and position. The cache is
+ * sized in bytes relative to the app's memory class, hands evicted bitmaps to a
+ * {@link ThumbnailBitmapPool} for reuse and shrinks when the system asks the app to trim memory.
+ *
+ * <p>The seek row may still show a thumbnail after it was evicted, so evicted bitmaps are held
+ * back until {@link #recycleEvicted()} reports that the seek row let go of its thumbnails. Only
+ * then are they pooled and drawn over. Held back bitmaps are capped like the pool; beyond that,
+ * the oldest are left to the garbage collector.
+ */
+public final class ThumbnailCache implements ComponentCallbacks2 {
+
+    /**
+     * Share of the memory class given to thumbnails.
+     */
+    private static final int MEMORY_CLASS_DIVISOR = 16;
+
+    private static ThumbnailCache sInstance;
+
+    private final ThumbnailBitmapPool mBitmapPool;
+    private final LruCache<String, Bitmap> mCache;
+    private final ArrayDeque<Bitmap> mEvicted = new ArrayDeque<>();
+    private final long mMaxEvictedBytes;
+    private long mEvictedBytes;
+
+    /**
+     * Returns the process-wide cache, creating it on first use.
+     */
+    public static synchronized ThumbnailCache getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            ActivityManager activityManager =
+                    (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+            int maxBytes = activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_CLASS_DIVISOR;
+            sInstance = new ThumbnailCache(maxBytes);
+            appContext.registerComponentCallbacks(sInstance);
+        }
+        return sInstance;
+    }
+
+    private ThumbnailCache(int maxBytes) {
+        mBitmapPool = new ThumbnailBitmapPool(maxBytes / 4);
+        mMaxEvictedBytes = maxBytes / 4;
+        mCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Bitmap oldValue,
+                                        Bitmap newValue) {
+                if (evicted) {
+                    holdEvicted(oldValue);
+                }
+            }
+        };
+    }
+
+    public ThumbnailBitmapPool getBitmapPool() {
+        return mBitmapPool;
+    }
+
+    @Nullable
+    public Bitmap get(String videoUrl, long positionMs) {
+        return mCache.get(key(videoUrl, positionMs));
+    }
+
+    public void put(String videoUrl, long positionMs, Bitmap thumbnail) {
+        mCache.put(key(videoUrl, positionMs), thumbnail);
+    }
+
+    private static String key(String videoUrl, long positionMs) {
+        return videoUrl + '@' + positionMs;
+    }
+
+    private void holdEvicted(Bitmap bitmap) {
+        synchronized (mEvicted) {
+            mEvicted.addFirst(bitmap);
+            mEvictedBytes += bitmap.getAllocationByteCount();
+            while (mEvictedBytes > mMaxEvictedBytes) {
+                mEvictedBytes -= mEvicted.pollLast().getAllocationByteCount();
+            }
+        }
+    }
+
+    /**
+     * Hands the thumbnails evicted so far to the bitmap pool. Call once the seek row no longer
+     * shows any thumbnail, since pooled bitmaps are drawn over.
+     */
+    public void recycleEvicted() {
+        synchronized (mEvicted) {
+            for (Bitmap bitmap : mEvicted) {
+                mBitmapPool.put(bitmap);
+            }
+            mEvicted.clear();
+            mEvictedBytes = 0;
+        }
+    }
+
+    private void clearEvicted() {
+        synchronized (mEvicted) {
+            mEvicted.clear();
+            mEvictedBytes = 0;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_BACKGROUND) {
+            mCache.evictAll();
+            clearEvicted();
+            mBitmapPool.clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+            clearEvicted();
+            mBitmapPool.clear();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+}
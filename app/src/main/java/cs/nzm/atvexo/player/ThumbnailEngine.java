@@ -0,0 +1,114 @@
+package cs.nzm.atvexo.player;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.util.Util;
+
+import java.io.IOException;
+
+/**
+ * Produces seek thumbnails for a video from the cheapest source it offers, in this order:
+ * <ol>
+ *     <li>a WebVTT sprite-sheet thumbnail track, when the video declares one;</li>
+ *     <li>the HLS <code>EXT-X-I-FRAMES-ONLY</code> variant, when the stream has one;</li>
+ *     <li>a {@link android.media.MediaMetadataRetriever} kept open for the whole session.</li>
+ * </ol>
+ * The source is chosen on the first request, so the engine can be created on the main thread.
+ * Every read goes through {@link PlaybackDataSources#getUpstreamFactory(Context)}, sharing the
+ * player's cache.
+ */
+public final class ThumbnailEngine {
+
+    private static final String TAG = "ThumbnailEngine";
+
+    private final Context mContext;
+    private final String mVideoUrl;
+    @Nullable private final String mSpriteSheetUrl;
+    @Nullable private ThumbnailSource mSource;
+    private boolean mReleased;
+
+    /**
+     * @param context The current context.
+     * @param videoUrl The URL of the video or of its manifest.
+     * @param spriteSheetUrl The URL of a WebVTT sprite-sheet thumbnail track, or
+     *                       <code>null</code> if the video has none.
+     */
+    public ThumbnailEngine(Context context, String videoUrl, @Nullable String spriteSheetUrl) {
+        mContext = context.getApplicationContext();
+        mVideoUrl = videoUrl;
+        mSpriteSheetUrl = spriteSheetUrl;
+    }
+
+    /**
+     * Returns the thumbnail closest to the given position, downsampled to fit into the given
+     * bounds. Must be called from a worker thread.
+     *
+     * @param bitmapPool Pool that provides the memory for downsampled thumbnails.
+     */
+    @Nullable
+    public Bitmap getThumbnail(long positionMs, int maxWidth, int maxHeight,
+                               ThumbnailBitmapPool bitmapPool) throws IOException {
+        ThumbnailSource source = getSource();
+        if (source == null) {
+            return null;
+        }
+        Bitmap frame = source.getThumbnail(positionMs, maxWidth, maxHeight);
+        return frame != null ? bitmapPool.scale(frame, maxWidth, maxHeight) : null;
+    }
+
+    private synchronized ThumbnailSource getSource() {
+        if (mSource == null && !mReleased) {
+            mSource = openSource();
+        }
+        return mSource;
+    }
+
+    private ThumbnailSource openSource() {
+        DataSource.Factory dataSourceFactory = PlaybackDataSources.getUpstreamFactory(mContext);
+        if (mSpriteSheetUrl != null) {
+            try {
+                ThumbnailSource source = SpriteSheetThumbnailSource.open(
+                        dataSourceFactory, Uri.parse(mSpriteSheetUrl));
+                if (source != null) {
+                    Log.d(TAG, "Using sprite sheets for " + mVideoUrl);
+                    return source;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to read sprite sheet track " + mSpriteSheetUrl, e);
+            }
+        }
+        Uri videoUri = Uri.parse(mVideoUrl);
+        if (Util.inferContentType(videoUri) == C.CONTENT_TYPE_HLS) {
+            try {
+                ThumbnailSource source = IFrameThumbnailSource.open(
+                        dataSourceFactory, videoUri, mContext.getCacheDir());
+                if (source != null) {
+                    Log.d(TAG, "Using I-frame playlist for " + mVideoUrl);
+                    return source;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to read I-frame playlist of " + mVideoUrl, e);
+            }
+        }
+        Log.d(TAG, "Using retriever for " + mVideoUrl);
+        return new RetrieverThumbnailSource(mContext, mVideoUrl);
+    }
+
+    /**
+     * Releases the underlying source. The engine must not be used afterwards.
+     */
+    public synchronized void release() {
+        mReleased = true;
+        if (mSource != null) {
+            mSource.release();
+            mSource = null;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package cs.nzm.atvexo.player;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs thumbnail loads on a small, fixed set of worker threads, nearest to the scrub position
+ * first.
+ *
+ * <p>While the user scrubs, the seek row asks for every thumbnail it shows in one go, with the
+ * thumbnail under the scrub position in the middle. Requests made during the same main thread
+ * message therefore form a batch: its middle is taken as the scrub position, pending loads are
+ * reordered by their distance to it, and loads that fall outside the batch are dropped because
+ * the seek row no longer shows them. Fast scrubbing thus never queues more than one screen of
+ * thumbnails.
+ *
+ * <p>All methods except the loads themselves run on the main thread.
+ */
+final class ThumbnailScheduler {
+
+    public static final int DEFAULT_WORKER_COUNT = 2;
+
+    /**
+     * Loads a single thumbnail on a worker thread.
+     */
+    interface Loader {
+        @Nullable
+        Bitmap load(int index);
+    }
+
+    /**
+     * Receives loaded thumbnails on the main thread.
+     */
+    interface Callback {
+        void onThumbnailLoaded(@Nullable Bitmap bitmap, int index);
+    }
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final PriorityBlockingQueue<Runnable> mQueue = new PriorityBlockingQueue<>();
+    private final ThreadPoolExecutor mExecutor;
+    private final Loader mLoader;
+    private final SparseArray<Request> mRequests = new SparseArray<>();
+    private final List<Request> mBatch = new ArrayList<>();
+    private int mBatchStart = Integer.MAX_VALUE;
+    private int mBatchEnd = Integer.MIN_VALUE;
+    private long mSequence;
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushBatch();
+        }
+    };
+
+    ThumbnailScheduler(Loader loader, int workerCount) {
+        mLoader = loader;
+        mExecutor = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                mQueue, new ThreadFactory() {
+                    private int mCount;
+
+                    @Override
+                    public Thread newThread(@NonNull final Runnable runnable) {
+                        return new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                                runnable.run();
+                            }
+                        }, "ThumbnailWorker-" + mCount++);
+                    }
+                });
+        mExecutor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Requests a thumbnail. Requests for an index that is already pending are merged.
+     */
+    void schedule(int index, Callback callback) {
+        mark(index);
+        Request request = mRequests.get(index);
+        if (request != null) {
+            request.mCallback = callback;
+            return;
+        }
+        request = new Request(index, callback, mSequence++);
+        mRequests.put(index, request);
+        mBatch.add(request);
+    }
+
+    /**
+     * Records that the seek row shows the given index, without loading it. Used for thumbnails
+     * that are answered from the cache.
+     */
+    void mark(int index) {
+        if (mBatchStart == Integer.MAX_VALUE) {
+            mHandler.post(mFlushRunnable);
+        }
+        mBatchStart = Math.min(mBatchStart, index);
+        mBatchEnd = Math.max(mBatchEnd, index);
+    }
+
+    /**
+     * Cancels every pending and running request. Results of loads that are already running are
+     * dropped.
+     */
+    void cancelAll() {
+        mHandler.removeCallbacks(mFlushRunnable);
+        mBatch.clear();
+        mBatchStart = Integer.MAX_VALUE;
+        mBatchEnd = Integer.MIN_VALUE;
+        for (int i = 0; i < mRequests.size(); i++) {
+            mRequests.valueAt(i).mCancelled = true;
+        }
+        mRequests.clear();
+        mQueue.clear();
+    }
+
+    /**
+     * Cancels everything and stops the workers.
+     */
+    void release() {
+        cancelAll();
+        mExecutor.shutdownNow();
+    }
+
+    private void flushBatch() {
+        int focus = (mBatchStart + mBatchEnd) / 2;
+        List<Runnable> queued = new ArrayList<>();
+        mQueue.drainTo(queued);
+        for (Runnable runnable : queued) {
+            Request request = (Request) runnable;
+            if (request.mIndex < mBatchStart || request.mIndex > mBatchEnd) {
+                request.mCancelled = true;
+                mRequests.remove(request.mIndex);
+            } else {
+                request.mDistance = Math.abs(request.mIndex - focus);
+                mQueue.offer(request);
+            }
+        }
+        for (Request request : mBatch) {
+            request.mDistance = Math.abs(request.mIndex - focus);
+            mExecutor.execute(request);
+        }
+        mBatch.clear();
+        mBatchStart = Integer.MAX_VALUE;
+        mBatchEnd = Integer.MIN_VALUE;
+    }
+
+    private void deliver(final Request request, @Nullable final Bitmap bitmap) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (request.mCancelled || mRequests.get(request.mIndex) != request) {
+                    return;
+                }
+                mRequests.remove(request.mIndex);
+                request.mCallback.onThumbnailLoaded(bitmap, request.mIndex);
+            }
+        });
+    }
+
+    private final class Request implements Runnable, Comparable<Request> {
+        final int mIndex;
+        final long mSequence;
+        Callback mCallback;
+        volatile int mDistance;
+        volatile boolean mCancelled;
+
+        Request(int index, Callback callback, long sequence) {
+            mIndex = index;
+            mCallback = callback;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+            deliver(this, mLoader.load(mIndex));
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (mDistance != other.mDistance) {
+                return mDistance < other.mDistance ? -1 : 1;
+            }
+            return Long.compare(mSequence, other.mSequence);
+        }
+    }
+}
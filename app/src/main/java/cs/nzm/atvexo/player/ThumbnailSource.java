@@ -0,0 +1,28 @@
+package cs.nzm.atvexo.player;
+
+import android.graphics.Bitmap;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+
+/**
+ * Produces seek thumbnails for a single video. Implementations are safe to call from several
+ * worker threads.
+ */
+interface ThumbnailSource {
+
+    /**
+     * Returns the thumbnail closest to the given position, or <code>null</code> if no frame could
+     * be produced. Sources that can decode at a reduced size should fit the thumbnail into the
+     * given bounds; larger results are downsampled by the caller.
+     */
+    @Nullable
+    Bitmap getThumbnail(long positionMs, int maxWidth, int maxHeight) throws IOException;
+
+    /**
+     * Releases any resource held by the source. Calls that come in afterwards, for example from
+     * workers that took the source just before, return <code>null</code>.
+     */
+    void release();
+}
@@ -15,8 +15,10 @@
 package cs.nzm.atvexo.player;
 
 import android.content.Context;
+import android.content.Intent;
 import android.media.AudioManager;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -26,9 +28,14 @@ import android.view.ViewGroup;
 import androidx.leanback.app.VideoSupportFragment;
 import androidx.leanback.app.VideoSupportFragmentGlueHost;
 import androidx.leanback.widget.PlaybackControlsRow;
+import androidx.leanback.widget.PlaybackSeekDataProvider;
+import androidx.leanback.widget.PlaybackSeekUi;
 
 import com.google.android.exoplayer2.ui.SubtitleView;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import cs.nzm.atvexo.R;
 import cs.nzm.atvexo.models.MediaMetaData;
 
@@ -48,6 +55,7 @@ public class VideoConsumptionExampleWithExoPlayerFragment extends VideoSupportFr
         }
     };
     private ExoPlayerAdapter playerAdapter;
+    private PlaybackSeekMetadataDataProvider mSeekDataProvider;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -55,6 +63,8 @@ public class VideoConsumptionExampleWithExoPlayerFragment extends VideoSupportFr
         playerAdapter = new ExoPlayerAdapter(getActivity());
         playerAdapter.setRepeatAction(PlaybackControlsRow.RepeatAction.INDEX_NONE);
         mMediaPlayerGlue = new VideoMediaPlayerGlue<>(getActivity(), playerAdapter);
+        List<MediaMetaData> queue = getQueue(getActivity().getIntent());
+        mMediaPlayerGlue.setSkipActionsEnabled(queue.size() > 1);
         mMediaPlayerGlue.setHost(mHost);
         AudioManager audioManager = (AudioManager) getActivity()
                 .getSystemService(Context.AUDIO_SERVICE);
@@ -63,45 +73,198 @@ public class VideoConsumptionExampleWithExoPlayerFragment extends VideoSupportFr
             Log.w(TAG, "video player cannot obtain audio focus!");
         }
 
-        MediaMetaData intentMetaData = getActivity().getIntent().getParcelableExtra(
-                VideoExampleWithExoPlayerActivity.TAG);
-        if (intentMetaData != null) {
-            mMediaPlayerGlue.setTitle(intentMetaData.getMediaTitle());
-            mMediaPlayerGlue.setSubtitle(intentMetaData.getMediaArtistName());
-            mMediaPlayerGlue.getPlayerAdapter().setDataSource(
-                    Uri.parse(intentMetaData.getMediaSourcePath()));
-            if (intentMetaData.isLive()) {
-                mMediaPlayerGlue.setSeekProvider(null);
-                mMediaPlayerGlue.setSeekEnabled(false);
-            } else {
-                mMediaPlayerGlue.setSeekProvider(new PlaybackSeekMetadataDataProvider(getActivity(), intentMetaData.getMediaSourcePath(), 10000));
+        playerAdapter.setAutoplayNext(getResources().getBoolean(R.bool.autoplay_next));
+        // Only applies to the live items of a queue.
+        playerAdapter.setLiveConfiguration(ExoPlayerAdapter.DEFAULT_LIVE_CONFIGURATION);
+        playerAdapter.setQueueListener(new ExoPlayerAdapter.QueueListener() {
+            @Override
+            public void onQueueItemChanged(int index, MediaMetaData item) {
+                bindQueueItem(item);
             }
+        });
+        if (!queue.isEmpty()) {
+            bindQueueItem(queue.get(0));
+            playerAdapter.setQueue(queue, 0);
         } else {
             mMediaPlayerGlue.setTitle("Diving with Sharks");
             mMediaPlayerGlue.setSubtitle("A Googler");
+            playerAdapter.setBufferProfile(BufferProfile.forContent(getActivity(), false));
             mMediaPlayerGlue.getPlayerAdapter().setDataSource(Uri.parse(URL));
-            mMediaPlayerGlue.setSeekProvider(new PlaybackSeekMetadataDataProvider(getActivity(), URL, 10000));
+            mSeekDataProvider = new PlaybackSeekMetadataDataProvider(getActivity(), URL, 10000);
+            mMediaPlayerGlue.setSeekProvider(mSeekDataProvider);
         }
         mMediaPlayerGlue.playWhenPrepared();
         setBackgroundType(BG_LIGHT);
     }
 
+    /**
+     * Returns the item to play from the intent, followed by the rest of its queue, or an empty
+     * list if the intent has no item.
+     */
+    private static List<MediaMetaData> getQueue(Intent intent) {
+        List<MediaMetaData> queue = new ArrayList<>();
+        MediaMetaData intentMetaData = intent.getParcelableExtra(
+                VideoExampleWithExoPlayerActivity.TAG);
+        if (intentMetaData != null) {
+            queue.add(intentMetaData);
+            ArrayList<MediaMetaData> followingItems = intent
+                    .getParcelableArrayListExtra(VideoExampleWithExoPlayerActivity.EXTRA_QUEUE);
+            if (followingItems != null) {
+                queue.addAll(followingItems);
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Plays the item of a new intent in place of the current one, for example when another
+     * card is clicked while playing in picture-in-picture. The player and its surface are kept.
+     */
+    void onNewIntent(Intent intent) {
+        List<MediaMetaData> queue = getQueue(intent);
+        if (queue.isEmpty()) {
+            return;
+        }
+        mMediaPlayerGlue.setSkipActionsEnabled(queue.size() > 1);
+        bindQueueItem(queue.get(0));
+        playerAdapter.setQueue(queue, 0);
+        mMediaPlayerGlue.playWhenPrepared();
+    }
+
+    /**
+     * Shows the given item of the queue: its title, and the buffering and seeking that fit it.
+     */
+    private void bindQueueItem(MediaMetaData item) {
+        mMediaPlayerGlue.setTitle(item.getMediaTitle());
+        mMediaPlayerGlue.setSubtitle(item.getMediaArtistName());
+        playerAdapter.setBufferProfile(BufferProfile.forContent(getActivity(), item.isLive()));
+        if (mSeekDataProvider != null) {
+            mSeekDataProvider.release();
+            mSeekDataProvider = null;
+        }
+        if (item.isLive()) {
+            mMediaPlayerGlue.setSeekProvider(null);
+            mMediaPlayerGlue.setSeekEnabled(false);
+        } else {
+            mSeekDataProvider = new PlaybackSeekMetadataDataProvider(getActivity(),
+                    item.getMediaSourcePath(), item.getThumbnailsUrl(), 10000);
+            mMediaPlayerGlue.setSeekProvider(mSeekDataProvider);
+            mMediaPlayerGlue.setSeekEnabled(true);
+        }
+    }
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = super.onCreateView(inflater, container, savedInstanceState);
         SubtitleView subtitleView = view.findViewById(R.id.leanback_subtitles);
         if (playerAdapter != null) {
             playerAdapter.setSubtitleView(subtitleView);
+            playerAdapter.setSurfaceView(getSurfaceView());
         }
         return view;
     }
 
+    @Override
+    public void onDestroyView() {
+        if (playerAdapter != null) {
+            playerAdapter.setSurfaceView(null);
+        }
+        super.onDestroyView();
+    }
+
+    @Override
+    public void showControlsOverlay(boolean runAnimation) {
+        super.showControlsOverlay(runAnimation);
+        if (playerAdapter != null) {
+            playerAdapter.onControlsOverlayVisibilityChanged();
+        }
+    }
+
+    @Override
+    public void hideControlsOverlay(boolean runAnimation) {
+        super.hideControlsOverlay(runAnimation);
+        if (playerAdapter != null) {
+            playerAdapter.onControlsOverlayVisibilityChanged();
+        }
+    }
+
+    /**
+     * Receives the seek client of the glue when it is attached, and wraps it so that the adapter
+     * knows when the user is scrubbing.
+     */
+    @Override
+    public void setPlaybackSeekUiClient(PlaybackSeekUi.Client client) {
+        super.setPlaybackSeekUiClient(client != null ? new ScrubbingSeekUiClient(client) : null);
+    }
+
+    /**
+     * Forwards to the glue's seek client, marking the adapter as scrubbing from the start of a
+     * seek until it is finished or cancelled.
+     */
+    private final class ScrubbingSeekUiClient extends PlaybackSeekUi.Client {
+        private final PlaybackSeekUi.Client mClient;
+
+        ScrubbingSeekUiClient(PlaybackSeekUi.Client client) {
+            mClient = client;
+        }
+
+        @Override
+        public boolean isSeekEnabled() {
+            return mClient.isSeekEnabled();
+        }
+
+        @Override
+        public void onSeekStarted() {
+            playerAdapter.setScrubbing(true);
+            mClient.onSeekStarted();
+        }
+
+        @Override
+        public PlaybackSeekDataProvider getPlaybackSeekDataProvider() {
+            return mClient.getPlaybackSeekDataProvider();
+        }
+
+        @Override
+        public void onSeekPositionChanged(long pos) {
+            mClient.onSeekPositionChanged(pos);
+        }
+
+        @Override
+        public void onSeekFinished(boolean cancelled) {
+            mClient.onSeekFinished(cancelled);
+            playerAdapter.setScrubbing(false);
+        }
+    }
+
     @Override
     public void onPause() {
-        if (mMediaPlayerGlue != null) {
+        // Keeps playing in picture-in-picture, where the activity stays paused.
+        if (mMediaPlayerGlue != null && !isInPictureInPictureMode()) {
             mMediaPlayerGlue.pause();
         }
         super.onPause();
     }
 
+    @Override
+    public void onStop() {
+        // The picture-in-picture window was closed.
+        if (mMediaPlayerGlue != null) {
+            mMediaPlayerGlue.pause();
+        }
+        super.onStop();
+    }
+
+    private boolean isInPictureInPictureMode() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                && getActivity() != null && getActivity().isInPictureInPictureMode();
+    }
+
+    @Override
+    public void onDestroy() {
+        if (mSeekDataProvider != null) {
+            mSeekDataProvider.release();
+        }
+        super.onDestroy();
+    }
+
 }
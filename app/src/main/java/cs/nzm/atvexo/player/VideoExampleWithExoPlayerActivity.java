@@ -19,6 +19,7 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 
+import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 import androidx.core.os.BuildCompat;
 
@@ -28,6 +29,11 @@ import androidx.core.os.BuildCompat;
 public class VideoExampleWithExoPlayerActivity extends FragmentActivity {
 
     public static final String TAG = "VideoExampleWithExoPlayerActivity";
+    /**
+     * Items to play after the one in the {@link #TAG} extra, as an
+     * <code>ArrayList&lt;MediaMetaData&gt;</code>.
+     */
+    public static final String EXTRA_QUEUE = "queue";
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -49,6 +55,10 @@ public class VideoExampleWithExoPlayerActivity extends FragmentActivity {
         // to update this intent when for example, user clicks on another video when the currently
         // playing video is in PIP mode, and a new video needs to be started.
         setIntent(intent);
+        Fragment fragment = getSupportFragmentManager().findFragmentById(android.R.id.content);
+        if (fragment instanceof VideoConsumptionExampleWithExoPlayerFragment) {
+            ((VideoConsumptionExampleWithExoPlayerFragment) fragment).onNewIntent(intent);
+        }
     }
 
     public static boolean supportsPictureInPicture(Context context) {
@@ -38,6 +38,9 @@ public class VideoMediaPlayerGlue<T extends PlayerAdapter> extends PlaybackTrans
     private PlaybackControlsRow.PictureInPictureAction mPipAction;
     private PlaybackControlsRow.MoreActions mQualityAction;
     private PlaybackControlsRow.ClosedCaptioningAction subtitleAction;
+    private PlaybackControlsRow.SkipNextAction mSkipNextAction;
+    private PlaybackControlsRow.SkipPreviousAction mSkipPreviousAction;
+    private boolean mSkipActionsEnabled;
     private ExoPlayerAdapter adapter;
 
     public VideoMediaPlayerGlue(Activity context, T impl) {
@@ -49,6 +52,8 @@ public class VideoMediaPlayerGlue<T extends PlayerAdapter> extends PlaybackTrans
         mPipAction = new PlaybackControlsRow.PictureInPictureAction(context);
         subtitleAction = new PlaybackControlsRow.ClosedCaptioningAction(context);
         subtitleAction.setIndex(PlaybackControlsRow.ClosedCaptioningAction.INDEX_ON);
+        mSkipNextAction = new PlaybackControlsRow.SkipNextAction(context);
+        mSkipPreviousAction = new PlaybackControlsRow.SkipPreviousAction(context);
     }
 
     @Override
@@ -60,11 +65,35 @@ public class VideoMediaPlayerGlue<T extends PlayerAdapter> extends PlaybackTrans
         adapter.add(mQualityAction);
     }
 
+    /**
+     * Sets whether the controls offer skipping to the next and previous items of a queue. Once
+     * the controls exist, their primary actions are rebuilt to match.
+     */
+    public void setSkipActionsEnabled(boolean enabled) {
+        if (mSkipActionsEnabled == enabled) {
+            return;
+        }
+        mSkipActionsEnabled = enabled;
+        ArrayObjectAdapter primaryActionsAdapter = getPrimaryActionsAdapter();
+        if (primaryActionsAdapter != null) {
+            primaryActionsAdapter.clear();
+            onCreatePrimaryActions(primaryActionsAdapter);
+            // The rebuilt play/pause action starts out showing play.
+            onPlayStateChanged();
+        }
+    }
+
     @Override
     protected void onCreatePrimaryActions(ArrayObjectAdapter adapter) {
+        if (mSkipActionsEnabled) {
+            adapter.add(mSkipPreviousAction);
+        }
         adapter.add(rewindAction);
         super.onCreatePrimaryActions(adapter);
         adapter.add(forwardAction);
+        if (mSkipActionsEnabled) {
+            adapter.add(mSkipNextAction);
+        }
     }
 
     @Override
@@ -81,6 +110,8 @@ public class VideoMediaPlayerGlue<T extends PlayerAdapter> extends PlaybackTrans
                 || action == mPipAction
                 || action == rewindAction
                 || action == forwardAction
+                || action == mSkipNextAction
+                || action == mSkipPreviousAction
                 || action == subtitleAction;
     }
 
@@ -97,6 +128,10 @@ public class VideoMediaPlayerGlue<T extends PlayerAdapter> extends PlaybackTrans
             adapter.fastForward();
         } else if (rewindAction.equals(action)) {
             adapter.rewind();
+        } else if (mSkipNextAction.equals(action)) {
+            adapter.next();
+        } else if (mSkipPreviousAction.equals(action)) {
+            adapter.previous();
         } else {
             if (subtitleAction.equals(action)) {
                 adapter.toggleSubs();
@@ -140,9 +175,38 @@ public class VideoMediaPlayerGlue<T extends PlayerAdapter> extends PlaybackTrans
 
     Handler mHandler = new Handler();
 
+    @Override
+    protected void onPreparedStateChanged() {
+        super.onPreparedStateChanged();
+        publishSeekPositions();
+    }
+
+    @Override
+    protected void onDurationChanged() {
+        super.onDurationChanged();
+        publishSeekPositions();
+    }
+
+    /**
+     * Hands the duration the player reports to the seek provider, which derives its seek positions
+     * from it.
+     */
+    private void publishSeekPositions() {
+        if (isPrepared() && getSeekProvider() instanceof PlaybackSeekMetadataDataProvider) {
+            ((PlaybackSeekMetadataDataProvider) getSeekProvider()).setDuration(getDuration());
+        }
+    }
+
+    /**
+     * Called when the last item of the queue ended; items before it continue into the next one
+     * within the player. Shows the controls, so the user can replay or skip back.
+     */
     @Override
     protected void onPlayCompleted() {
         super.onPlayCompleted();
+        if (getHost() != null) {
+            getHost().showControlsOverlay(true);
+        }
     }
 
 }
\ No newline at end of file
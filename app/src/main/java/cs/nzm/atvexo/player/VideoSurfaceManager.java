@@ -0,0 +1,208 @@
+package cs.nzm.atvexo.player;
+
+import android.media.MediaFormat;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Surface;
+import android.view.SurfaceControl;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.google.android.exoplayer2.Format;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.video.VideoFrameMetadataListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the video output of a player alive while the surface it is shown on changes, for example
+ * when the activity enters or leaves picture-in-picture, so the decoder is neither released nor
+ * flushed.
+ *
+ * <p>From API 29, when the surface belongs to a {@link SurfaceView}, the decoder renders into a
+ * {@link SurfaceControl} of its own, created once. Attaching re-parents it under the view's
+ * surface and detaching hides it, so the output of the player never changes. Otherwise the
+ * surface is handed to the player and cleared when it is destroyed; from API 23 ExoPlayer then
+ * keeps the decoder running on its placeholder surface and switches it to the next surface
+ * without reconfiguring it.
+ *
+ * <p>The time from every attach during playback to the first frame rendered after it is reported
+ * to the {@link PlaybackMetrics}. Must be used from the main thread.
+ */
+public final class VideoSurfaceManager {
+
+    private static final String SURFACE_CONTROL_NAME = "ExoTV.video";
+
+    private final ExoPlayer mPlayer;
+    private final PlaybackMetrics mMetrics;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    // Time of the last attach, in System.nanoTime(), until a frame was rendered after it.
+    private final AtomicLong mAttachTimeNs = new AtomicLong(C.TIME_UNSET);
+    @Nullable private SurfaceControl mSurfaceControl;
+    @Nullable private Surface mSurfaceControlSurface;
+    // The surface the player renders into, or null if it renders into its placeholder.
+    @Nullable private Surface mOutput;
+    // The view the surface control is re-parented under, or null if it is hidden.
+    @Nullable private SurfaceView mParentView;
+    private boolean mReleased;
+
+    private final Player.Listener mPlayerListener = new Player.Listener() {
+        @Override
+        public void onIsPlayingChanged(boolean isPlaying) {
+            if (!isPlaying) {
+                // Time spent paused is not switching time.
+                mAttachTimeNs.set(C.TIME_UNSET);
+            }
+        }
+    };
+
+    private final VideoFrameMetadataListener mFrameMetadataListener =
+            new VideoFrameMetadataListener() {
+                @Override
+                public void onVideoFrameAboutToBeRendered(long presentationTimeUs,
+                                                          long releaseTimeNs, Format format,
+                                                          @Nullable MediaFormat mediaFormat) {
+                    // Called on the playback thread.
+                    long attachTimeNs = mAttachTimeNs.get();
+                    if (attachTimeNs == C.TIME_UNSET
+                            || !mAttachTimeNs.compareAndSet(attachTimeNs, C.TIME_UNSET)) {
+                        return;
+                    }
+                    final long latencyMs = Math.max(0, releaseTimeNs - attachTimeNs) / 1_000_000;
+                    mHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!mReleased) {
+                                mMetrics.onSurfaceSwitchRendered(latencyMs);
+                            }
+                        }
+                    });
+                }
+            };
+
+    public VideoSurfaceManager(ExoPlayer player, PlaybackMetrics metrics) {
+        mPlayer = player;
+        mMetrics = metrics;
+        mPlayer.addListener(mPlayerListener);
+        mPlayer.setVideoFrameMetadataListener(mFrameMetadataListener);
+    }
+
+    /**
+     * Shows the video on the surface of the given holder.
+     *
+     * @param surfaceView The view the holder belongs to, if known. Only then the video can be
+     *                    re-parented rather than switched to the new surface.
+     */
+    public void attach(SurfaceHolder holder, @Nullable SurfaceView surfaceView) {
+        if (mReleased) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && surfaceView != null) {
+            reparent(surfaceView);
+            setOutput(getSurfaceControlSurface());
+        } else {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mParentView != null) {
+                reparent(null);
+            }
+            setOutput(holder.getSurface());
+        }
+        mAttachTimeNs.set(mPlayer.isPlaying() ? System.nanoTime() : C.TIME_UNSET);
+    }
+
+    /**
+     * Stops showing the video, before the attached surface is destroyed. The decoder keeps
+     * running until the next {@link #attach}.
+     */
+    public void detach() {
+        mAttachTimeNs.set(C.TIME_UNSET);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mParentView != null) {
+            reparent(null);
+        } else {
+            setOutput(null);
+        }
+    }
+
+    /**
+     * Resizes the video to a new size of the attached surface.
+     */
+    public void onSurfaceSizeChanged(int width, int height) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mParentView != null) {
+            new SurfaceControl.Transaction()
+                    .setBufferSize(mSurfaceControl, width, height)
+                    .apply();
+        }
+    }
+
+    /**
+     * Hands the output back to the player, which stays usable, and releases the surface control.
+     */
+    public void release() {
+        if (mReleased) {
+            return;
+        }
+        mReleased = true;
+        mHandler.removeCallbacksAndMessages(null);
+        mPlayer.removeListener(mPlayerListener);
+        mPlayer.clearVideoFrameMetadataListener(mFrameMetadataListener);
+        setOutput(null);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mSurfaceControl != null) {
+            mSurfaceControlSurface.release();
+            mSurfaceControl.release();
+            mSurfaceControlSurface = null;
+            mSurfaceControl = null;
+            mParentView = null;
+        }
+    }
+
+    private void setOutput(@Nullable Surface surface) {
+        if (surface == mOutput) {
+            return;
+        }
+        if (surface != null) {
+            mPlayer.setVideoSurface(surface);
+        } else {
+            // Switches the decoder to the player's placeholder surface.
+            mPlayer.clearVideoSurface(mOutput);
+        }
+        mOutput = surface;
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private Surface getSurfaceControlSurface() {
+        if (mSurfaceControl == null) {
+            mSurfaceControl = new SurfaceControl.Builder()
+                    .setName(SURFACE_CONTROL_NAME)
+                    .setBufferSize(0, 0)
+                    .build();
+            mSurfaceControlSurface = new Surface(mSurfaceControl);
+        }
+        return mSurfaceControlSurface;
+    }
+
+    /**
+     * Moves the video under the surface of the given view and sizes it to the view, or hides it.
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private void reparent(@Nullable SurfaceView surfaceView) {
+        getSurfaceControlSurface();
+        SurfaceControl.Transaction transaction = new SurfaceControl.Transaction();
+        if (surfaceView == null) {
+            transaction.reparent(mSurfaceControl, null)
+                    .setBufferSize(mSurfaceControl, 0, 0)
+                    .setVisibility(mSurfaceControl, false);
+        } else {
+            transaction.reparent(mSurfaceControl, surfaceView.getSurfaceControl())
+                    .setBufferSize(mSurfaceControl, surfaceView.getWidth(),
+                            surfaceView.getHeight())
+                    .setVisibility(mSurfaceControl, true);
+        }
+        transaction.apply();
+        mParentView = surfaceView;
+    }
+}
@@ -18,6 +18,7 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.net.Uri;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -34,18 +35,28 @@ public class Utils {
     /**
      * Will read the content from a given {@link InputStream} and return it as a {@link String}.
      *
-     * @param inputStream The {@link InputStream} which should be read.
+     * @param inputStream The {@link InputStream} which should be read. It is read to its end as
+     *                    UTF-8 and closed afterwards.
      * @return Returns <code>null</code> if the the {@link InputStream} could not be read. Else
      * returns the content of the {@link InputStream} as {@link String}.
      */
     public static String inputStreamToString(InputStream inputStream) {
         try {
-            byte[] bytes = new byte[inputStream.available()];
-            inputStream.read(bytes, 0, bytes.length);
-            String json = new String(bytes);
-            return json;
+            ByteArrayOutputStream output = new ByteArrayOutputStream(
+                    Math.max(inputStream.available(), 8192));
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return output.toString("UTF-8");
         } catch (IOException e) {
             return null;
+        } finally {
+            try {
+                inputStream.close();
+            } catch (IOException ignored) {
+            }
         }
     }
 
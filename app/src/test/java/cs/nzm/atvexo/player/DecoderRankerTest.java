@@ -0,0 +1,61 @@
+package cs.nzm.atvexo.player;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class DecoderRankerTest {
+
+    private static final DecoderRanker.Decoder SOFTWARE =
+            new DecoderRanker.Decoder("c2.android.avc.decoder", false, true, false);
+    private static final DecoderRanker.Decoder UNKNOWN =
+            new DecoderRanker.Decoder("OMX.google.h264.decoder", false, false, false);
+    private static final DecoderRanker.Decoder HARDWARE =
+            new DecoderRanker.Decoder("c2.hw.avc.decoder", true, false, false);
+    private static final DecoderRanker.Decoder HARDWARE_VENDOR =
+            new DecoderRanker.Decoder("OMX.vendor.avc.decoder", true, false, true);
+    private static final DecoderRanker.Decoder UNKNOWN_VENDOR =
+            new DecoderRanker.Decoder("OMX.other.avc.decoder", false, false, true);
+
+    @Test
+    public void ordersHardwareFirstAndVendorFirstWithinRank() {
+        List<DecoderRanker.Decoder> decoders =
+                Arrays.asList(SOFTWARE, UNKNOWN, HARDWARE, HARDWARE_VENDOR, UNKNOWN_VENDOR);
+        DecoderRanker ranker = new DecoderRanker(true, Collections.<String>emptyList());
+
+        assertArrayEquals(new int[] {3, 2, 4, 1, 0}, ranker.rank(decoders));
+    }
+
+    @Test
+    public void movesExcludedDecodersLast() {
+        List<DecoderRanker.Decoder> decoders =
+                Arrays.asList(SOFTWARE, HARDWARE_VENDOR, HARDWARE, UNKNOWN);
+        DecoderRanker ranker = new DecoderRanker(true, Collections.singletonList("OMX.vendor."));
+
+        assertArrayEquals(new int[] {2, 3, 0, 1}, ranker.rank(decoders));
+    }
+
+    @Test
+    public void keepsPlatformOrderForEqualRanks() {
+        DecoderRanker.Decoder otherHardware =
+                new DecoderRanker.Decoder("c2.hw2.avc.decoder", true, false, false);
+        List<DecoderRanker.Decoder> decoders =
+                Arrays.asList(SOFTWARE, otherHardware, UNKNOWN, HARDWARE);
+        DecoderRanker ranker = new DecoderRanker(true, Collections.<String>emptyList());
+
+        assertArrayEquals(new int[] {1, 3, 2, 0}, ranker.rank(decoders));
+    }
+
+    @Test
+    public void keepsPlatformOrderWithoutHardwarePreference() {
+        List<DecoderRanker.Decoder> decoders =
+                Arrays.asList(SOFTWARE, UNKNOWN, HARDWARE, HARDWARE_VENDOR);
+        DecoderRanker ranker = new DecoderRanker(false, Collections.singletonList("c2.android."));
+
+        assertArrayEquals(new int[] {1, 2, 3, 0}, ranker.rank(decoders));
+    }
+}
@@ -0,0 +1,52 @@
+package cs.nzm.atvexo.benchmark;
+
+/**
+ * Builds synthetic catalogs in the format of <code>launcher_cards.json</code>.
+ */
+final class CatalogFixtures {
+
+    static final int CARDS_PER_ROW = 50;
+
+    private CatalogFixtures() {
+    }
+
+    /**
+     * @return A catalog of the given number of cards, in rows of {@link #CARDS_PER_ROW}.
+     */
+    static String catalogJson(int cardCount) {
+        StringBuilder json = new StringBuilder(cardCount * 400);
+        json.append('[');
+        int rowCount = (cardCount + CARDS_PER_ROW - 1) / CARDS_PER_ROW;
+        int id = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (row > 0) {
+                json.append(',');
+            }
+            json.append("{\"title\":\"Row ").append(row).append("\",\"cards\":[");
+            int end = Math.min(cardCount, id + CARDS_PER_ROW);
+            for (int first = id; id < end; id++) {
+                if (id > first) {
+                    json.append(',');
+                }
+                appendCard(json, id);
+            }
+            json.append("]}");
+        }
+        json.append(']');
+        return json.toString();
+    }
+
+    private static void appendCard(StringBuilder json, int id) {
+        json.append("{\"id\":").append(id)
+                .append(",\"type\":\"DEFAULT\"")
+                .append(",\"title\":\"Title ").append(id).append('"')
+                .append(",\"description\":\"Description of the video number ").append(id)
+                .append(", long enough to be realistic for a catalog entry.\"")
+                .append(",\"localImageResource\":\"thumbnail_example_video_consumption\"")
+                .append(",\"card\":\"https://example.com/artwork/").append(id).append(".jpg\"")
+                .append(",\"videoUrl\":\"https://example.com/videos/").append(id)
+                .append("/master.m3u8\"")
+                .append(",\"isLive\":").append(id % 10 == 0)
+                .append('}');
+    }
+}
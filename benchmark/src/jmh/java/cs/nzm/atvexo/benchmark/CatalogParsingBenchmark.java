@@ -0,0 +1,59 @@
+package cs.nzm.atvexo.benchmark;
+
+import com.google.gson.Gson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import cs.nzm.atvexo.catalog.CatalogParser;
+import cs.nzm.atvexo.models.CardRow;
+
+/**
+ * Compares binding the whole catalog with Gson, as the launcher used to, with streaming it
+ * through {@link CatalogParser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogParsingBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    public int cardCount;
+
+    private String mJson;
+    private Gson mGson;
+    private CatalogParser mParser;
+
+    @Setup
+    public void setUp() {
+        mJson = CatalogFixtures.catalogJson(cardCount);
+        mGson = new Gson();
+        mParser = new CatalogParser(mGson);
+    }
+
+    @Benchmark
+    public CardRow[] gsonTree() {
+        return mGson.fromJson(mJson, CardRow[].class);
+    }
+
+    @Benchmark
+    public int streaming(final Blackhole blackhole) throws IOException {
+        return mParser.parse(new StringReader(mJson), new CatalogParser.Callback() {
+            @Override
+            public void onRowParsed(CardRow row) {
+                blackhole.consume(row);
+            }
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package cs.nzm.atvexo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import cs.nzm.atvexo.utils.Utils;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InputStreamToStringBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int cardCount;
+
+    private byte[] mBytes;
+
+    @Setup
+    public void setUp() {
+        mBytes = CatalogFixtures.catalogJson(cardCount).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String inputStreamToString() {
+        return Utils.inputStreamToString(new ByteArrayInputStream(mBytes));
+    }
+}
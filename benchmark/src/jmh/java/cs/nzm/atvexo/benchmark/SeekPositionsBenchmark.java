@@ -0,0 +1,33 @@
+package cs.nzm.atvexo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import cs.nzm.atvexo.player.SeekPositions;
+
+/**
+ * Seek-position tables for a short clip, a feature film and a day-long live window, at the 10s
+ * interval the player uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SeekPositionsBenchmark {
+
+    private static final long INTERVAL_MS = 10_000;
+
+    @Param({"600000", "7200000", "86400000"})
+    public long durationMs;
+
+    @Benchmark
+    public long[] compute() {
+        return SeekPositions.compute(durationMs, INTERVAL_MS);
+    }
+}
@@ -0,0 +1,20 @@
+#!/bin/sh
+# Generates the local media played by the fixture catalog of the benchmark build, so the
+# benchmarks never touch the network. Requires ffmpeg. Run from the repository root before
+# ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest.
+set -e
+
+OUT_DIR=app/src/benchmark/assets/fixtures
+mkdir -p "$OUT_DIR"
+
+# 30s of 720p H.264 test pattern with a tone, keyframe every second.
+ffmpeg -y -loglevel error \
+    -f lavfi -i testsrc2=size=1280x720:rate=30 \
+    -f lavfi -i sine=frequency=440:sample_rate=48000 \
+    -t 30 \
+    -c:v libx264 -profile:v main -pix_fmt yuv420p -g 30 -b:v 2500k \
+    -c:a aac -b:a 128k \
+    -movflags +faststart \
+    "$OUT_DIR/clip.mp4"
+
+echo "Wrote $OUT_DIR/clip.mp4"
@@ -0,0 +1,38 @@
+package cs.nzm.atvexo.macrobenchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Collects the baseline profile of the launcher and playback paths: cold start, browsing the
+ * catalog and starting playback. Needs a rooted device or an emulator running a userdebug image.
+ * Copy the generated <code>baseline-prof.txt</code> to <code>app/src/main</code>.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    @Rule
+    public BaselineProfileRule mBaselineProfileRule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        mBaselineProfileRule.collectBaselineProfile(
+                Scenarios.PACKAGE_NAME,
+                Collections.<String>emptyList(),
+                scope -> {
+                    scope.pressHome();
+                    Scenarios.openBrowse(scope);
+                    Scenarios.scrollCatalog(scope.getDevice());
+                    Scenarios.playFocusedCard(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+}
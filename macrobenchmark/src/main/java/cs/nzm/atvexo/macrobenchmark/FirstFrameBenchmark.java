@@ -0,0 +1,66 @@
+package cs.nzm.atvexo.macrobenchmark;
+
+import androidx.annotation.OptIn;
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.ExperimentalMetricApi;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.Metric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Time from clicking a card until the player renders the first frame of the bundled fixture
+ * clip, read from the <code>ExoTV.firstFrame</code> trace section of the app.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FirstFrameBenchmark {
+
+    private static final String FIRST_FRAME_SECTION = "ExoTV.firstFrame";
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule mBenchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void firstFrameWithoutCompilation() {
+        firstFrame(new CompilationMode.None());
+    }
+
+    @Test
+    public void firstFrameWithBaselineProfile() {
+        firstFrame(new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    @OptIn(markerClass = ExperimentalMetricApi.class)
+    private void firstFrame(CompilationMode compilationMode) {
+        List<Metric> metrics = Arrays.asList(
+                new TraceSectionMetric(FIRST_FRAME_SECTION), new FrameTimingMetric());
+        mBenchmarkRule.measureRepeated(
+                Scenarios.PACKAGE_NAME,
+                metrics,
+                compilationMode,
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    Scenarios.openBrowse(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Scenarios.playFocusedCard(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+}
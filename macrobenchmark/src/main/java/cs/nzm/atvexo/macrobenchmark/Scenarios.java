@@ -0,0 +1,57 @@
+package cs.nzm.atvexo.macrobenchmark;
+
+import android.os.SystemClock;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.Until;
+
+/**
+ * User journeys shared by the benchmarks and the baseline profile generator. They run against the
+ * benchmark build of the app, whose catalog only points at bundled fixtures.
+ */
+final class Scenarios {
+
+    static final String PACKAGE_NAME = "cs.nzm.atvexo";
+
+    private static final long UI_TIMEOUT_MS = 10_000;
+    private static final long PLAYBACK_SETTLE_MS = 3_000;
+
+    private Scenarios() {
+    }
+
+    /**
+     * Starts the launcher activity and waits until the first row shows.
+     */
+    static void openBrowse(MacrobenchmarkScope scope) {
+        scope.startActivityAndWait();
+        scope.getDevice().wait(Until.hasObject(By.res(PACKAGE_NAME, "row_content")),
+                UI_TIMEOUT_MS);
+    }
+
+    /**
+     * Scrolls through a few rows, moving along each of them and back.
+     */
+    static void scrollCatalog(UiDevice device) {
+        for (int row = 0; row < 4; row++) {
+            for (int i = 0; i < 8; i++) {
+                device.pressDPadRight();
+            }
+            for (int i = 0; i < 8; i++) {
+                device.pressDPadLeft();
+            }
+            device.pressDPadDown();
+        }
+        device.waitForIdle();
+    }
+
+    /**
+     * Opens the focused card in the player and waits for playback to start.
+     */
+    static void playFocusedCard(UiDevice device) {
+        device.pressDPadCenter();
+        device.wait(Until.hasObject(By.clazz("android.view.SurfaceView")), UI_TIMEOUT_MS);
+        SystemClock.sleep(PLAYBACK_SETTLE_MS);
+    }
+}
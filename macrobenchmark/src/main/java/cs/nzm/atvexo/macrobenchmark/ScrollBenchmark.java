@@ -0,0 +1,57 @@
+package cs.nzm.atvexo.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Frame timing while scrolling the browse screen with the D-pad, along rows and down the
+ * catalog.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ScrollBenchmark {
+
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public MacrobenchmarkRule mBenchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void scrollWithoutCompilation() {
+        scroll(new CompilationMode.None());
+    }
+
+    @Test
+    public void scrollWithBaselineProfile() {
+        scroll(new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    private void scroll(CompilationMode compilationMode) {
+        mBenchmarkRule.measureRepeated(
+                Scenarios.PACKAGE_NAME,
+                Collections.singletonList(new FrameTimingMetric()),
+                compilationMode,
+                StartupMode.COLD,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    Scenarios.openBrowse(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Scenarios.scrollCatalog(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,62 @@
+#!/usr/bin/env python3
+"""Local stand-in for the remote catalog, for checking catalog sync in debug builds.
+
+Serves a catalog file with an ETag and a Last-Modified header, answers conditional requests with
+304 and gzips the body when asked to. Edit the file while the app runs to see the change applied
+as a delta on the next refresh.
+
+    tools/catalog_server.py app/src/main/res/raw/launcher_cards.json
+    ./gradlew installDebug -PcatalogUrl=http://10.0.2.2:8000/catalog.json
+"""
+
+import argparse
+import email.utils
+import gzip
+import hashlib
+import os
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+
+def make_handler(path):
+    class CatalogHandler(BaseHTTPRequestHandler):
+        def do_GET(self):
+            if self.path.split("?")[0] != "/catalog.json":
+                self.send_error(404)
+                return
+            with open(path, "rb") as f:
+                body = f.read()
+            etag = '"%s"' % hashlib.sha1(body).hexdigest()
+            last_modified = email.utils.formatdate(os.path.getmtime(path), usegmt=True)
+            if self.headers.get("If-None-Match") == etag:
+                self.send_response(304)
+                self.send_header("ETag", etag)
+                self.end_headers()
+                return
+            gzipped = "gzip" in self.headers.get("Accept-Encoding", "")
+            if gzipped:
+                body = gzip.compress(body)
+            self.send_response(200)
+            self.send_header("Content-Type", "application/json")
+            self.send_header("ETag", etag)
+            self.send_header("Last-Modified", last_modified)
+            if gzipped:
+                self.send_header("Content-Encoding", "gzip")
+            self.send_header("Content-Length", str(len(body)))
+            self.end_headers()
+            self.wfile.write(body)
+
+    return CatalogHandler
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument("catalog", help="catalog file to serve as /catalog.json")
+    parser.add_argument("--port", type=int, default=8000)
+    args = parser.parse_args()
+    server = ThreadingHTTPServer(("", args.port), make_handler(args.catalog))
+    print("Serving %s on http://localhost:%d/catalog.json" % (args.catalog, args.port))
+    server.serve_forever()
+
+
+if __name__ == "__main__":
+    main()
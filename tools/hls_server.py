@@ -0,0 +1,59 @@
+#!/usr/bin/env python3
+"""Local stand-in for an HLS origin, for checking stream preloading in debug builds.
+
+Serves the HLS fixtures of the instrumented tests: a multivariant playlist with a low and a high
+variant, an I-frame variant and a live playlist. Every request is logged, so moving focus across
+cards shows which streams were preloaded and which preloads were cancelled. Segments can be
+delayed to make cancellation visible.
+
+    tools/hls_server.py --segment-delay-ms 1500
+    adb reverse tcp:8000 tcp:8000
+    # then point a card of the catalog at http://localhost:8000/master.m3u8
+"""
+
+import argparse
+import os
+import time
+from http.server import SimpleHTTPRequestHandler, ThreadingHTTPServer
+
+FIXTURES = os.path.join(os.path.dirname(__file__), "..", "app", "src", "androidTest", "assets",
+                        "hls")
+
+CONTENT_TYPES = {
+    ".m3u8": "application/vnd.apple.mpegurl",
+    ".ts": "video/mp2t",
+}
+
+
+def make_handler(directory, segment_delay_ms):
+    class HlsHandler(SimpleHTTPRequestHandler):
+        def __init__(self, *args, **kwargs):
+            super().__init__(*args, directory=directory, **kwargs)
+
+        def guess_type(self, path):
+            return CONTENT_TYPES.get(os.path.splitext(path)[1], "application/octet-stream")
+
+        def do_GET(self):
+            if segment_delay_ms and self.path.split("?")[0].endswith(".ts"):
+                time.sleep(segment_delay_ms / 1000.0)
+            super().do_GET()
+
+    return HlsHandler
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument("--directory", default=FIXTURES, help="fixtures to serve")
+    parser.add_argument("--port", type=int, default=8000)
+    parser.add_argument("--segment-delay-ms", type=int, default=0,
+                        help="time to wait before answering a segment request")
+    args = parser.parse_args()
+    directory = os.path.abspath(args.directory)
+    server = ThreadingHTTPServer(("", args.port),
+                                 make_handler(directory, args.segment_delay_ms))
+    print("Serving %s on http://localhost:%d/master.m3u8" % (directory, args.port))
+    server.serve_forever()
+
+
+if __name__ == "__main__":
+    main()